@@ -0,0 +1,165 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.benchmark;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.Session;
+import javax.jms.StreamMessage;
+
+import org.apache.activemq.ActiveMQConnectionFactory;
+
+import org.flcit.springboot.commons.jms.converter.BaseJsonMessageConverter;
+import org.flcit.springboot.commons.jms.converter.BaseMessageConverter;
+import org.flcit.springboot.commons.jms.streaming.OutputStreamMessage;
+
+/**
+ * Messages en mémoire créés par une session sur le broker embarqué <code>vm://</code>.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class BenchmarkSupport {
+
+    static final String BROKER_URL = "vm://benchmark?broker.persistent=false&broker.useJmx=false";
+
+    private static final int WRITE_SIZE = 64 * 1024;
+
+    private BenchmarkSupport() { }
+
+    /**
+     * Type de message JMS
+     */
+    enum MessageType {
+        TEXT, BYTES, STREAM, MAP
+    }
+
+    /**
+     * Objet sérialisé par les benchmarks
+     */
+    public static class Payload {
+
+        private String id;
+        private String data;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getData() {
+            return data;
+        }
+
+        public void setData(String data) {
+            this.data = data;
+        }
+
+    }
+
+    /**
+     * Convertisseur JSON dont le type cible est fixe
+     */
+    static class FixedTypeConverter extends BaseJsonMessageConverter {
+
+        private final Class<?> classResult;
+
+        FixedTypeConverter(Class<?> classResult) {
+            this.classResult = classResult;
+        }
+
+        @Override
+        public Class<?> getClassResult(Message message) {
+            return classResult;
+        }
+
+    }
+
+    static Connection createConnection() throws JMSException {
+        final Connection connection = new ActiveMQConnectionFactory(BROKER_URL).createConnection();
+        connection.start();
+        return connection;
+    }
+
+    static Payload payload(int size) {
+        final char[] data = new char[size];
+        Arrays.fill(data, 'x');
+        final Payload payload = new Payload();
+        payload.setId("benchmark");
+        payload.setData(new String(data));
+        return payload;
+    }
+
+    static byte[] bytes(int size) {
+        final byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte) 'x');
+        return bytes;
+    }
+
+    static Message createMessage(Session session, MessageType type, Payload payload, BaseMessageConverter converter) throws JMSException, IOException {
+        switch (type) {
+            case TEXT:
+                return session.createTextMessage(converter.toString(payload));
+            case BYTES:
+                final BytesMessage bytesMessage = session.createBytesMessage();
+                bytesMessage.writeBytes(converter.toBytes(payload));
+                bytesMessage.reset();
+                return bytesMessage;
+            case STREAM:
+                return createStreamMessage(session, converter.toBytes(payload));
+            case MAP:
+                final MapMessage mapMessage = session.createMapMessage();
+                mapMessage.setString("id", payload.getId());
+                mapMessage.setString("data", payload.getData());
+                return mapMessage;
+            default:
+                throw new IllegalArgumentException(type.name());
+        }
+    }
+
+    static StreamMessage createStreamMessage(Session session, byte[] body) throws JMSException, IOException {
+        final StreamMessage streamMessage = session.createStreamMessage();
+        try (OutputStreamMessage os = new OutputStreamMessage(streamMessage, OutputStreamMessage.DEFAULT_FIELD_SIZE, false)) {
+            for (int off = 0; off < body.length; off += WRITE_SIZE) {
+                os.write(body, off, Math.min(WRITE_SIZE, body.length - off));
+            }
+        }
+        streamMessage.reset();
+        return streamMessage;
+    }
+
+    /**
+     * Repositionne la lecture du corps au début
+     */
+    static void rewind(Message message) throws JMSException {
+        if (message instanceof BytesMessage) {
+            ((BytesMessage) message).reset();
+        } else if (message instanceof StreamMessage) {
+            ((StreamMessage) message).reset();
+        }
+    }
+
+}
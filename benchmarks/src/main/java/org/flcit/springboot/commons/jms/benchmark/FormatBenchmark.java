@@ -0,0 +1,108 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Message;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.flcit.springboot.commons.jms.benchmark.BenchmarkSupport.Payload;
+import org.flcit.springboot.commons.jms.converter.BaseCborMessageConverter;
+import org.flcit.springboot.commons.jms.converter.BaseJsonMessageConverter;
+import org.flcit.springboot.commons.jms.converter.BaseMessageConverter;
+import org.flcit.springboot.commons.jms.converter.BaseSmileMessageConverter;
+
+/**
+ * Débit de décodage des formats JSON, Smile et CBOR pour un tableau d'enregistrements.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class FormatBenchmark {
+
+    private static final int RECORD_DATA_SIZE = 64;
+
+    @Param({ "json", "smile", "cbor" })
+    public String format;
+
+    @Param({ "1", "100", "10000" })
+    public int recordCount;
+
+    private BaseMessageConverter converter;
+    private byte[] body;
+
+    @Setup
+    public void setup() {
+        converter = converter(format);
+        final Payload[] records = new Payload[recordCount];
+        for (int i = 0; i < recordCount; i++) {
+            records[i] = BenchmarkSupport.payload(RECORD_DATA_SIZE);
+            records[i].setId("record-" + i);
+        }
+        body = converter.toBytes(records);
+    }
+
+    @Benchmark
+    public Payload[] decode() {
+        return converter.fromBytes(body, Payload[].class);
+    }
+
+    private static BaseMessageConverter converter(String format) {
+        switch (format) {
+            case "smile":
+                return new BaseSmileMessageConverter() {
+                    @Override
+                    public Class<?> getClassResult(Message message) {
+                        return Payload[].class;
+                    }
+                };
+            case "cbor":
+                return new BaseCborMessageConverter() {
+                    @Override
+                    public Class<?> getClassResult(Message message) {
+                        return Payload[].class;
+                    }
+                };
+            default:
+                return new BaseJsonMessageConverter() {
+                    @Override
+                    public Class<?> getClassResult(Message message) {
+                        return Payload[].class;
+                    }
+                };
+        }
+    }
+
+}
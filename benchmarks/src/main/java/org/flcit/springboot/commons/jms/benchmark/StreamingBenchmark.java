@@ -0,0 +1,129 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Session;
+import javax.jms.StreamMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.flcit.springboot.commons.jms.streaming.InputStreamBytesMessage;
+import org.flcit.springboot.commons.jms.streaming.InputStreamMessage;
+import org.flcit.springboot.commons.jms.streaming.OutputStreamMessage;
+
+/**
+ * Adaptateurs de flux {@link InputStreamMessage}, {@link InputStreamBytesMessage} et {@link OutputStreamMessage}.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StreamingBenchmark {
+
+    private static final int READ_SIZE = 8192;
+
+    @Param({ "100", "10240", "1048576", "52428800" })
+    public int payloadSize;
+
+    private Connection connection;
+    private Session session;
+    private byte[] body;
+    private byte[] readBuffer;
+    private StreamMessage streamMessage;
+    private BytesMessage bytesMessage;
+
+    @Setup
+    public void setup() throws JMSException, IOException {
+        connection = BenchmarkSupport.createConnection();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        body = BenchmarkSupport.bytes(payloadSize);
+        readBuffer = new byte[READ_SIZE];
+        streamMessage = BenchmarkSupport.createStreamMessage(session, body);
+        bytesMessage = session.createBytesMessage();
+        bytesMessage.writeBytes(body);
+        bytesMessage.reset();
+    }
+
+    @TearDown
+    public void tearDown() throws JMSException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long inputStreamMessageTransferTo(Blackhole blackhole) throws JMSException, IOException {
+        streamMessage.reset();
+        try (InputStreamMessage is = new InputStreamMessage(streamMessage)) {
+            return is.transferTo(new BlackholeOutputStream(blackhole));
+        }
+    }
+
+    @Benchmark
+    public long inputStreamMessageRead() throws JMSException, IOException {
+        streamMessage.reset();
+        long total = 0;
+        try (InputStreamMessage is = new InputStreamMessage(streamMessage)) {
+            int n;
+            while ((n = is.read(readBuffer, 0, READ_SIZE)) != -1) {
+                total += n;
+            }
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long inputStreamBytesMessageTransferTo(Blackhole blackhole) throws JMSException, IOException {
+        bytesMessage.reset();
+        try (InputStreamBytesMessage is = new InputStreamBytesMessage(bytesMessage)) {
+            return is.transferTo(new BlackholeOutputStream(blackhole));
+        }
+    }
+
+    @Benchmark
+    public StreamMessage outputStreamMessage() throws JMSException, IOException {
+        final StreamMessage message = session.createStreamMessage();
+        try (OutputStreamMessage os = new OutputStreamMessage(message, OutputStreamMessage.DEFAULT_FIELD_SIZE, false)) {
+            for (int off = 0; off < body.length; off += READ_SIZE) {
+                os.write(body, off, Math.min(READ_SIZE, body.length - off));
+            }
+        }
+        return message;
+    }
+
+}
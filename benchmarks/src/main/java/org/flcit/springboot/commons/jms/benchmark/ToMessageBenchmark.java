@@ -0,0 +1,90 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import org.flcit.springboot.commons.jms.benchmark.BenchmarkSupport.FixedTypeConverter;
+import org.flcit.springboot.commons.jms.benchmark.BenchmarkSupport.Payload;
+import org.flcit.springboot.commons.jms.codec.GzipCodec;
+import org.flcit.springboot.commons.jms.converter.BaseMessageConverter;
+
+/**
+ * {@link BaseMessageConverter#toMessage(Object, Session)} par taille de corps, avec et sans compression.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ToMessageBenchmark {
+
+    @Param({ "100", "10240", "1048576", "52428800" })
+    public int payloadSize;
+
+    @Param({ "false", "true" })
+    public boolean compression;
+
+    private Connection connection;
+    private Session session;
+    private BaseMessageConverter converter;
+    private Payload payload;
+
+    @Setup
+    public void setup() throws JMSException {
+        connection = BenchmarkSupport.createConnection();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        converter = new FixedTypeConverter(Payload.class);
+        if (compression) {
+            converter.setCodec(new GzipCodec());
+        }
+        payload = BenchmarkSupport.payload(payloadSize);
+    }
+
+    @TearDown
+    public void tearDown() throws JMSException {
+        connection.close();
+    }
+
+    @Benchmark
+    public Message toMessage() throws JMSException {
+        return converter.toMessage(payload, session);
+    }
+
+}
@@ -16,18 +16,150 @@
 
 package org.flcit.springboot.commons.jms;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.jms.ConnectionFactory;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.AutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Import;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.listener.MessageListenerContainer;
+import org.springframework.util.ClassUtils;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
 
+import org.flcit.springboot.commons.jms.concurrency.AdaptiveConcurrencyController;
+import org.flcit.springboot.commons.jms.converter.BaseJsonMessageConverter;
+import org.flcit.springboot.commons.jms.converter.BaseMessageConverter;
 import org.flcit.springboot.commons.jms.error.ListenerErrorHandler;
+import org.flcit.springboot.commons.jms.metrics.MicrometerJmsMetrics;
+import org.flcit.springboot.commons.jms.type.TypeRegistry;
+import org.flcit.springboot.commons.jms.warmup.JmsWarmUp;
 
 /**
  * 
  * @since 
  * @author Florian Lestic
  */
-@AutoConfiguration
+@AutoConfiguration(after = JacksonAutoConfiguration.class, afterName = {
+        "org.springframework.boot.actuate.autoconfigure.metrics.MetricsAutoConfiguration",
+        "org.springframework.boot.actuate.autoconfigure.metrics.CompositeMeterRegistryAutoConfiguration" })
 @Import(ListenerErrorHandler.class)
+@EnableConfigurationProperties(CommonsJmsProperties.class)
 public class CommonsJmsAutoConfiguration {
 
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "commons.jms.types", name = "base-packages")
+    TypeRegistry typeRegistry(CommonsJmsProperties properties) {
+        final CommonsJmsProperties.Types types = properties.getTypes();
+        return TypeRegistry.builder()
+                .propertyName(types.getPropertyName())
+                .allowedPackages(types.getAllowedPackages().toArray(new String[0]))
+                .scan(types.getBasePackages().toArray(new String[0]))
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "commons.jms.concurrency", name = "enabled", havingValue = "true")
+    AdaptiveConcurrencyController adaptiveConcurrencyController(CommonsJmsProperties properties, ObjectProvider<JmsListenerEndpointRegistry> registry,
+            ListableBeanFactory beanFactory) {
+        final List<String> ids = properties.getConcurrency().getListenerIds();
+        return new AdaptiveConcurrencyController(properties.getConcurrency(), () -> {
+            final Set<MessageListenerContainer> result = new LinkedHashSet<>();
+            registry.ifAvailable(r -> r.getListenerContainerIds().stream()
+                    .filter(id -> ids.isEmpty() || ids.contains(id))
+                    .forEach(id -> result.add(r.getListenerContainer(id))));
+            beanFactory.getBeansOfType(MessageListenerContainer.class).forEach((name, container) -> {
+                if (ids.isEmpty() || ids.contains(name)) {
+                    result.add(container);
+                }
+            });
+            return result;
+        });
+    }
+
+    @Bean
+    @ConditionalOnMissingBean
+    @ConditionalOnProperty(prefix = "commons.jms.warm-up", name = "enabled", havingValue = "true")
+    JmsWarmUp jmsWarmUp(CommonsJmsProperties properties, ObjectProvider<BaseMessageConverter> converters, ObjectProvider<TypeRegistry> typeRegistry,
+            ObjectProvider<JmsTemplate> jmsTemplate, ObjectProvider<ConnectionFactory> connectionFactory) {
+        final List<Class<?>> classes = new ArrayList<>(properties.getWarmUp().getClasses());
+        typeRegistry.ifAvailable(registry -> classes.addAll(registry.getClasses().values()));
+        final List<BaseMessageConverter> converterList = converters.orderedStream().collect(Collectors.toList());
+        final JmsTemplate template = jmsTemplate.getIfUnique();
+        if (template != null) {
+            return new JmsWarmUp(properties.getWarmUp(), converterList, classes, template.getConnectionFactory(), template.getDestinationResolver(), template.isPubSubDomain());
+        }
+        return new JmsWarmUp(properties.getWarmUp(), converterList, classes, connectionFactory.getIfUnique());
+    }
+
+    /**
+     * 
+     * @since 
+     * @author Florian Lestic
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "com.fasterxml.jackson.databind.ObjectMapper")
+    static class JacksonConfiguration {
+
+        /**
+         * Exclu de l'injection par type afin de ne pas concurrencer l'{@link ObjectMapper} de l'application,
+         * résolu par son nom par les convertisseurs.
+         */
+        @Bean(name = BaseJsonMessageConverter.OBJECT_MAPPER_BEAN_NAME, autowireCandidate = false)
+        @ConditionalOnMissingBean(name = BaseJsonMessageConverter.OBJECT_MAPPER_BEAN_NAME)
+        ObjectMapper jmsObjectMapper(CommonsJmsProperties properties) {
+            final ObjectMapper objectMapper = BaseJsonMessageConverter.createDefaultObjectMapper();
+            final String moduleClassName = properties.getJackson().getAccessorModule().getClassName();
+            if (moduleClassName != null) {
+                if (!ClassUtils.isPresent(moduleClassName, null)) {
+                    throw new IllegalStateException("Jackson module is not present in the classpath : " + moduleClassName);
+                }
+                objectMapper.registerModule((Module) BeanUtils.instantiateClass(ClassUtils.resolveClassName(moduleClassName, null)));
+            }
+            return objectMapper;
+        }
+
+    }
+
+    /**
+     * 
+     * @since 
+     * @author Florian Lestic
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnBean(type = "io.micrometer.core.instrument.MeterRegistry")
+    @ConditionalOnProperty(prefix = "commons.jms.metrics", name = "enabled", matchIfMissing = true)
+    static class MetricsConfiguration {
+
+        @Bean
+        @ConditionalOnMissingBean
+        MicrometerJmsMetrics micrometerJmsMetrics(MeterRegistry registry) {
+            return new MicrometerJmsMetrics(registry);
+        }
+
+    }
+
 }
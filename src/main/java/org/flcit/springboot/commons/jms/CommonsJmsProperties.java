@@ -0,0 +1,571 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import org.flcit.springboot.commons.jms.error.ErrorCategory;
+import org.flcit.springboot.commons.jms.type.TypeRegistry;
+
+/**
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+@ConfigurationProperties(prefix = "commons.jms")
+public class CommonsJmsProperties {
+
+    private final Jackson jackson = new Jackson();
+    private final Error error = new Error();
+    private final Types types = new Types();
+    private final WarmUp warmUp = new WarmUp();
+    private final Concurrency concurrency = new Concurrency();
+
+    /**
+     * @return
+     */
+    public Jackson getJackson() {
+        return jackson;
+    }
+
+    /**
+     * @return
+     */
+    public Error getError() {
+        return error;
+    }
+
+    /**
+     * @return
+     */
+    public Types getTypes() {
+        return types;
+    }
+
+    /**
+     * @return
+     */
+    public WarmUp getWarmUp() {
+        return warmUp;
+    }
+
+    /**
+     * @return
+     */
+    public Concurrency getConcurrency() {
+        return concurrency;
+    }
+
+    /**
+     * 
+     * @since 
+     * @author Florian Lestic
+     */
+    public static class Jackson {
+
+        private AccessorModule accessorModule = AccessorModule.NONE;
+
+        /**
+         * @return
+         */
+        public AccessorModule getAccessorModule() {
+            return accessorModule;
+        }
+
+        /**
+         * @param accessorModule
+         */
+        public void setAccessorModule(AccessorModule accessorModule) {
+            this.accessorModule = accessorModule;
+        }
+
+    }
+
+    /**
+     * 
+     * @since 
+     * @author Florian Lestic
+     */
+    public static class Types {
+
+        private String propertyName = TypeRegistry.DEFAULT_PROPERTY_NAME;
+        private List<String> basePackages = new ArrayList<>();
+        private List<String> allowedPackages = new ArrayList<>();
+
+        /**
+         * @return
+         */
+        public String getPropertyName() {
+            return propertyName;
+        }
+
+        /**
+         * @param propertyName
+         */
+        public void setPropertyName(String propertyName) {
+            this.propertyName = propertyName;
+        }
+
+        /**
+         * @return les packages scannés à la recherche des classes annotées {@link org.flcit.springboot.commons.jms.type.JmsType}
+         */
+        public List<String> getBasePackages() {
+            return basePackages;
+        }
+
+        /**
+         * @param basePackages
+         */
+        public void setBasePackages(List<String> basePackages) {
+            this.basePackages = basePackages;
+        }
+
+        /**
+         * @return
+         */
+        public List<String> getAllowedPackages() {
+            return allowedPackages;
+        }
+
+        /**
+         * @param allowedPackages
+         */
+        public void setAllowedPackages(List<String> allowedPackages) {
+            this.allowedPackages = allowedPackages;
+        }
+
+    }
+
+    /**
+     * 
+     * @since 
+     * @author Florian Lestic
+     */
+    public static class WarmUp {
+
+        private boolean enabled;
+        private List<Class<?>> classes = new ArrayList<>();
+        private int iterations = 100;
+        private int sessions = 1;
+        private List<String> destinations = new ArrayList<>();
+
+        /**
+         * @return
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return les classes à préchauffer en plus de celles du {@link TypeRegistry}
+         */
+        public List<Class<?>> getClasses() {
+            return classes;
+        }
+
+        /**
+         * @param classes
+         */
+        public void setClasses(List<Class<?>> classes) {
+            this.classes = classes;
+        }
+
+        /**
+         * @return le nombre d'allers-retours de conversion par classe
+         */
+        public int getIterations() {
+            return iterations;
+        }
+
+        /**
+         * @param iterations
+         */
+        public void setIterations(int iterations) {
+            this.iterations = iterations;
+        }
+
+        /**
+         * @return le nombre de sessions ouvertes par avance
+         */
+        public int getSessions() {
+            return sessions;
+        }
+
+        /**
+         * @param sessions
+         */
+        public void setSessions(int sessions) {
+            this.sessions = sessions;
+        }
+
+        /**
+         * @return les destinations dont les producteurs sont ouverts par avance sur chaque session
+         */
+        public List<String> getDestinations() {
+            return destinations;
+        }
+
+        /**
+         * @param destinations
+         */
+        public void setDestinations(List<String> destinations) {
+            this.destinations = destinations;
+        }
+
+    }
+
+    /**
+     * 
+     * @since 
+     * @author Florian Lestic
+     */
+    public static class Concurrency {
+
+        private boolean enabled;
+        private long interval = 5000;
+        private long latencyTarget = 500;
+        private int minConsumers = 1;
+        private int maxConsumers = 50;
+        private int increase = 1;
+        private double decreaseFactor = 0.5;
+        private int maxBrowse = 1000;
+        private List<String> listenerIds = new ArrayList<>();
+
+        /**
+         * @return
+         */
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        /**
+         * @param enabled
+         */
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * @return l'intervalle d'ajustement en millisecondes
+         */
+        public long getInterval() {
+            return interval;
+        }
+
+        /**
+         * @param interval
+         */
+        public void setInterval(long interval) {
+            this.interval = interval;
+        }
+
+        /**
+         * @return la latence moyenne de traitement visée en millisecondes
+         */
+        public long getLatencyTarget() {
+            return latencyTarget;
+        }
+
+        /**
+         * @param latencyTarget
+         */
+        public void setLatencyTarget(long latencyTarget) {
+            this.latencyTarget = latencyTarget;
+        }
+
+        /**
+         * @return
+         */
+        public int getMinConsumers() {
+            return minConsumers;
+        }
+
+        /**
+         * @param minConsumers
+         */
+        public void setMinConsumers(int minConsumers) {
+            this.minConsumers = minConsumers;
+        }
+
+        /**
+         * @return
+         */
+        public int getMaxConsumers() {
+            return maxConsumers;
+        }
+
+        /**
+         * @param maxConsumers
+         */
+        public void setMaxConsumers(int maxConsumers) {
+            this.maxConsumers = maxConsumers;
+        }
+
+        /**
+         * @return le nombre de consommateurs ajoutés à chaque augmentation
+         */
+        public int getIncrease() {
+            return increase;
+        }
+
+        /**
+         * @param increase
+         */
+        public void setIncrease(int increase) {
+            this.increase = increase;
+        }
+
+        /**
+         * @return le facteur appliqué à la limite lorsque la latence dépasse la cible
+         */
+        public double getDecreaseFactor() {
+            return decreaseFactor;
+        }
+
+        /**
+         * @param decreaseFactor
+         */
+        public void setDecreaseFactor(double decreaseFactor) {
+            this.decreaseFactor = decreaseFactor;
+        }
+
+        /**
+         * @return le nombre maximal de messages parcourus pour mesurer la profondeur de file
+         */
+        public int getMaxBrowse() {
+            return maxBrowse;
+        }
+
+        /**
+         * @param maxBrowse
+         */
+        public void setMaxBrowse(int maxBrowse) {
+            this.maxBrowse = maxBrowse;
+        }
+
+        /**
+         * @return les identifiants des listeners ou noms des beans conteneurs ajustés, tous les conteneurs si vide
+         */
+        public List<String> getListenerIds() {
+            return listenerIds;
+        }
+
+        /**
+         * @param listenerIds
+         */
+        public void setListenerIds(List<String> listenerIds) {
+            this.listenerIds = listenerIds;
+        }
+
+    }
+
+    /**
+     * 
+     * @since 
+     * @author Florian Lestic
+     */
+    public static class Error {
+
+        private final BackOff backOff = new BackOff();
+        private final Map<ErrorCategory, BackOff> categories = new EnumMap<>(ErrorCategory.class);
+        private long logSummaryInterval;
+
+        /**
+         * @return le back-off par défaut
+         */
+        public BackOff getBackOff() {
+            return backOff;
+        }
+
+        /**
+         * @return les back-off spécifiques par catégorie d'erreur
+         */
+        public Map<ErrorCategory, BackOff> getCategories() {
+            return categories;
+        }
+
+        /**
+         * @return la période (en millisecondes) de regroupement des logs d'erreur similaires, 0 pour journaliser chaque erreur en détail
+         */
+        public long getLogSummaryInterval() {
+            return logSummaryInterval;
+        }
+
+        /**
+         * @param logSummaryInterval
+         */
+        public void setLogSummaryInterval(long logSummaryInterval) {
+            this.logSummaryInterval = logSummaryInterval;
+        }
+
+        /**
+         * @param category
+         * @return
+         */
+        public BackOff getBackOff(ErrorCategory category) {
+            final BackOff categoryBackOff = categories.get(category);
+            return categoryBackOff != null ? categoryBackOff : backOff;
+        }
+
+    }
+
+    /**
+     * 
+     * @since 
+     * @author Florian Lestic
+     */
+    public static class BackOff {
+
+        private long initialInterval = 1000;
+        private double multiplier = 2;
+        private long maxInterval = 30000;
+        private double jitter = 0.2;
+        private int failureThreshold = 10;
+        private long resetTimeout = 60000;
+
+        /**
+         * @return
+         */
+        public long getInitialInterval() {
+            return initialInterval;
+        }
+
+        /**
+         * @param initialInterval
+         */
+        public void setInitialInterval(long initialInterval) {
+            this.initialInterval = initialInterval;
+        }
+
+        /**
+         * @return
+         */
+        public double getMultiplier() {
+            return multiplier;
+        }
+
+        /**
+         * @param multiplier
+         */
+        public void setMultiplier(double multiplier) {
+            this.multiplier = multiplier;
+        }
+
+        /**
+         * @return
+         */
+        public long getMaxInterval() {
+            return maxInterval;
+        }
+
+        /**
+         * @param maxInterval
+         */
+        public void setMaxInterval(long maxInterval) {
+            this.maxInterval = maxInterval;
+        }
+
+        /**
+         * @return
+         */
+        public double getJitter() {
+            return jitter;
+        }
+
+        /**
+         * @param jitter
+         */
+        public void setJitter(double jitter) {
+            this.jitter = jitter;
+        }
+
+        /**
+         * @return
+         */
+        public int getFailureThreshold() {
+            return failureThreshold;
+        }
+
+        /**
+         * @param failureThreshold
+         */
+        public void setFailureThreshold(int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+        }
+
+        /**
+         * @return
+         */
+        public long getResetTimeout() {
+            return resetTimeout;
+        }
+
+        /**
+         * @param resetTimeout
+         */
+        public void setResetTimeout(long resetTimeout) {
+            this.resetTimeout = resetTimeout;
+        }
+
+    }
+
+    /**
+     * Module Jackson d'accès aux propriétés par génération de bytecode
+     * @since 
+     * @author Florian Lestic
+     */
+    public enum AccessorModule {
+        /**
+         * Aucun module
+         */
+        NONE(null),
+        /**
+         * jackson-module-afterburner
+         */
+        AFTERBURNER("com.fasterxml.jackson.module.afterburner.AfterburnerModule"),
+        /**
+         * jackson-module-blackbird (Java 11+)
+         */
+        BLACKBIRD("com.fasterxml.jackson.module.blackbird.BlackbirdModule");
+
+        private final String className;
+
+        AccessorModule(String className) {
+            this.className = className;
+        }
+
+        /**
+         * @return
+         */
+        public String getClassName() {
+            return className;
+        }
+    }
+
+}
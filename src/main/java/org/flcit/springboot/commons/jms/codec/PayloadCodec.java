@@ -0,0 +1,52 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.codec;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * SPI de compression du corps des messages.
+ * Les implémentations déclarées dans <code>META-INF/services/org.flcit.springboot.commons.jms.codec.PayloadCodec</code>
+ * sont enregistrées automatiquement dans {@link PayloadCodecs}.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public interface PayloadCodec {
+
+    /**
+     * @return le nom du codec, valeur de la propriété {@value PayloadCodecs#CONTENT_ENCODING}
+     */
+    String getName();
+
+    /**
+     * @param outputStream
+     * @return un flux compressant vers <code>outputStream</code>, sa fermeture ferme <code>outputStream</code>
+     * @throws IOException
+     */
+    OutputStream encode(OutputStream outputStream) throws IOException;
+
+    /**
+     * @param inputStream
+     * @return un flux décompressant <code>inputStream</code>
+     * @throws IOException
+     */
+    InputStream decode(InputStream inputStream) throws IOException;
+
+}
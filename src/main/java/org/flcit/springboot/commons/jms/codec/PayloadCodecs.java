@@ -0,0 +1,63 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.codec;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registre des codecs disponibles pour la décompression, indexés par nom.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public final class PayloadCodecs {
+
+    /**
+     * Propriété JMS portant le nom du codec appliqué au corps du message
+     */
+    public static final String CONTENT_ENCODING = "contentEncoding";
+
+    private static final Map<String, PayloadCodec> CODECS = new ConcurrentHashMap<>();
+
+    static {
+        register(new GzipCodec());
+        register(new DeflateCodec());
+        for (PayloadCodec codec : ServiceLoader.load(PayloadCodec.class, PayloadCodecs.class.getClassLoader())) {
+            register(codec);
+        }
+    }
+
+    private PayloadCodecs() { }
+
+    /**
+     * @param codec
+     */
+    public static void register(PayloadCodec codec) {
+        CODECS.put(codec.getName(), codec);
+    }
+
+    /**
+     * @param name
+     * @return le codec ou null s'il n'est pas enregistré
+     */
+    public static PayloadCodec get(String name) {
+        return CODECS.get(name);
+    }
+
+}
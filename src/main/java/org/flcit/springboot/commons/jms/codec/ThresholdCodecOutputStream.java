@@ -0,0 +1,125 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.codec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Conserve en mémoire les premiers octets écrits jusqu'au seuil : en deçà le corps est écrit tel quel,
+ * au-delà il est compressé par le codec et la propriété {@value PayloadCodecs#CONTENT_ENCODING} est positionnée sur le message.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class ThresholdCodecOutputStream extends OutputStream {
+
+    private final OutputStream target;
+    private final Message message;
+    private final PayloadCodec codec;
+    private final int threshold;
+    private byte[] buffer;
+    private int count;
+    private OutputStream delegate;
+    private boolean closed;
+
+    /**
+     * @param target
+     * @param message
+     * @param codec
+     * @param threshold
+     */
+    public ThresholdCodecOutputStream(OutputStream target, Message message, PayloadCodec codec, int threshold) {
+        this.target = target;
+        this.message = message;
+        this.codec = codec;
+        this.threshold = threshold;
+        this.buffer = new byte[Math.min(Math.max(threshold, 0), 1024)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (delegate == null && count + 1 > threshold) {
+            switchToCodec();
+        }
+        if (delegate != null) {
+            delegate.write(b);
+        } else {
+            ensureCapacity(count + 1);
+            buffer[count++] = (byte) b;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (delegate == null && count + len > threshold) {
+            switchToCodec();
+        }
+        if (delegate != null) {
+            delegate.write(b, off, len);
+        } else {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.min(threshold, Math.max(buffer.length * 2, capacity)));
+        }
+    }
+
+    private void switchToCodec() throws IOException {
+        try {
+            message.setStringProperty(PayloadCodecs.CONTENT_ENCODING, codec.getName());
+        } catch (JMSException e) { throw new IOException(e); }
+        delegate = codec.encode(target);
+        delegate.write(buffer, 0, count);
+        buffer = null;
+        count = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (delegate != null) {
+            delegate.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (delegate != null) {
+            delegate.close();
+        } else {
+            try {
+                target.write(buffer, 0, count);
+            } finally {
+                target.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.concurrency;
+
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import javax.jms.Connection;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.Queue;
+import javax.jms.QueueBrowser;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.jms.listener.MessageListenerContainer;
+import org.springframework.jms.listener.SessionAwareMessageListener;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import org.flcit.springboot.commons.jms.CommonsJmsProperties;
+
+/**
+ * Ajuste périodiquement le nombre de consommateurs des {@link DefaultMessageListenerContainer} selon une politique AIMD :
+ * <ul>
+ * <li>latence moyenne de traitement (conversion comprise) au-delà de la cible : réduction multiplicative de la limite ;</li>
+ * <li>sinon, file en retard (profondeur supérieure à la limite) : augmentation additive ;</li>
+ * <li>file vide : réduction d'un consommateur.</li>
+ * </ul>
+ * La latence est mesurée en enveloppant le listener de chaque conteneur, la profondeur de file par un {@link QueueBrowser} borné.
+ * Les conteneurs de topic non partagés, limités à un consommateur, sont ignorés.
+ * La limite reste comprise entre les bornes configurées et le nombre maximal de consommateurs propre à chaque conteneur au démarrage,
+ * seuls les conteneurs fournis par <code>containers</code> étant ajustés (voir la propriété listenerIds).
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class AdaptiveConcurrencyController implements SmartLifecycle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AdaptiveConcurrencyController.class);
+
+    private final CommonsJmsProperties.Concurrency properties;
+    private final Supplier<Collection<MessageListenerContainer>> containers;
+    private final Map<DefaultMessageListenerContainer, LatencyListener> listeners = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param properties
+     * @param containers conteneurs ajustés
+     */
+    public AdaptiveConcurrencyController(CommonsJmsProperties.Concurrency properties, Supplier<Collection<MessageListenerContainer>> containers) {
+        this.properties = properties;
+        this.containers = containers;
+    }
+
+    @Override
+    public synchronized void start() {
+        for (MessageListenerContainer container : containers.get()) {
+            if (container instanceof DefaultMessageListenerContainer && !listeners.containsKey(container)
+                    && isScalable((DefaultMessageListenerContainer) container)) {
+                final DefaultMessageListenerContainer dmlc = (DefaultMessageListenerContainer) container;
+                final LatencyListener listener = new LatencyListener(dmlc.getMessageListener(),
+                        Math.min(properties.getMaxConsumers(), dmlc.getMaxConcurrentConsumers()));
+                dmlc.setMessageListener(listener);
+                listeners.put(dmlc, listener);
+            }
+        }
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("jms-concurrency-");
+        threadFactory.setDaemon(true);
+        scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        scheduler.scheduleWithFixedDelay(this::adjust, properties.getInterval(), properties.getInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    private static boolean isScalable(DefaultMessageListenerContainer container) {
+        return !container.isPubSubDomain() || container.isSubscriptionShared();
+    }
+
+    private void adjust() {
+        for (Map.Entry<DefaultMessageListenerContainer, LatencyListener> entry : listeners.entrySet()) {
+            try {
+                adjust(entry.getKey(), entry.getValue());
+            } catch (RuntimeException | JMSException e) {
+                LOG.warn("Ajustement de la concurrence du conteneur en échec : {}", e.getMessage());
+            }
+        }
+    }
+
+    private void adjust(final DefaultMessageListenerContainer container, final LatencyListener listener) throws JMSException {
+        if (!container.isRunning()) {
+            return;
+        }
+        final long count = listener.count.sumThenReset();
+        final long totalNanos = listener.nanos.sumThenReset();
+        final long latency = count > 0 ? TimeUnit.NANOSECONDS.toMillis(totalNanos / count) : 0;
+        final int limit = container.getMaxConcurrentConsumers();
+        final int target;
+        if (latency > properties.getLatencyTarget()) {
+            target = (int) (limit * properties.getDecreaseFactor());
+        } else {
+            final int depth = queueDepth(container);
+            if (depth > limit) {
+                target = limit + properties.getIncrease();
+            } else if (depth == 0 && count == 0) {
+                target = limit - 1;
+            } else {
+                target = limit;
+            }
+        }
+        // le maximum configuré du conteneur reste son plafond
+        final int bounded = Math.max(Math.min(properties.getMinConsumers(), listener.ceiling), Math.min(listener.ceiling, target));
+        if (bounded != limit) {
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Concurrence du conteneur {} : {} -> {} (latence {} ms)", container.getDestination() != null ? container.getDestination() : container.getDestinationName(), limit, bounded, latency);
+            }
+            // la borne basse doit être abaissée avant la borne haute, qui ne peut lui être inférieure
+            container.setConcurrentConsumers(Math.min(container.getConcurrentConsumers(), bounded));
+            container.setMaxConcurrentConsumers(bounded);
+        }
+    }
+
+    /**
+     * @return le nombre de messages en attente, borné par la propriété maxBrowse, -1 si la destination n'est pas une file
+     */
+    private int queueDepth(final DefaultMessageListenerContainer container) throws JMSException {
+        if (container.isPubSubDomain() || container.getConnectionFactory() == null) {
+            return -1;
+        }
+        Connection connection = null;
+        Session session = null;
+        QueueBrowser browser = null;
+        try {
+            connection = container.getConnectionFactory().createConnection();
+            session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+            Destination destination = container.getDestination();
+            if (destination == null) {
+                destination = container.getDestinationResolver().resolveDestinationName(session, container.getDestinationName(), false);
+            }
+            if (!(destination instanceof Queue)) {
+                return -1;
+            }
+            browser = session.createBrowser((Queue) destination);
+            connection.start();
+            final Enumeration<?> messages = browser.getEnumeration();
+            int depth = 0;
+            while (depth < properties.getMaxBrowse() && messages.hasMoreElements()) {
+                messages.nextElement();
+                depth++;
+            }
+            return depth;
+        } finally {
+            JmsUtils.closeQueueBrowser(browser);
+            JmsUtils.closeSession(session);
+            JmsUtils.closeConnection(connection, true);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    /**
+     * @return une phase précédant celle des conteneurs de listeners, afin d'envelopper leur listener avant leur démarrage
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 1;
+    }
+
+    private static final class LatencyListener implements SessionAwareMessageListener<Message> {
+
+        private final Object delegate;
+        private final int ceiling;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private LatencyListener(Object delegate, int ceiling) {
+            this.delegate = delegate;
+            this.ceiling = ceiling;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public void onMessage(Message message, Session session) throws JMSException {
+            final long start = System.nanoTime();
+            try {
+                if (delegate instanceof SessionAwareMessageListener) {
+                    ((SessionAwareMessageListener<Message>) delegate).onMessage(message, session);
+                } else {
+                    ((MessageListener) delegate).onMessage(message);
+                }
+            } finally {
+                nanos.add(System.nanoTime() - start);
+                count.increment();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.converter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.springframework.jms.support.converter.MessageConversionException;
+
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import org.flcit.springboot.commons.jms.functional.ConsumerJmsException;
+
+/**
+ * Convertisseur s'appuyant sur un {@link ObjectMapper} Jackson, quel que soit son format (JSON, Smile, CBOR...).
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public abstract class BaseJacksonMessageConverter extends BaseMessageConverter {
+
+    /**
+     * Nombre maximal par défaut de types conservés dans les caches de lecture et d'écriture
+     */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    private static final String IOEXCEPTION_MESSAGE = "Une erreur s'est produite lors de la convertion du message";
+
+    private volatile Mapper mapper;
+
+    protected BaseJacksonMessageConverter(ObjectMapper objectMapper) {
+        this(objectMapper, DEFAULT_CACHE_SIZE);
+    }
+
+    protected BaseJacksonMessageConverter(ObjectMapper objectMapper, int cacheSize) {
+        this.mapper = new Mapper(objectMapper, cacheSize);
+    }
+
+    /**
+     * Applique la configuration par défaut des convertisseurs.
+     * @param objectMapper
+     * @return
+     */
+    public static ObjectMapper configure(ObjectMapper objectMapper) {
+        return objectMapper
+                .setSerializationInclusion(Include.NON_EMPTY)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .enable(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL);
+    }
+
+    /**
+     * @return
+     */
+    public ObjectMapper getObjectMapper() {
+        return mapper.objectMapper;
+    }
+
+    /**
+     * Remplace l'{@link ObjectMapper} avec de nouveaux caches de lecture et d'écriture.
+     * @param objectMapper
+     */
+    public synchronized void setObjectMapper(ObjectMapper objectMapper) {
+        this.mapper = new Mapper(objectMapper, mapper.cacheSize);
+    }
+
+    /**
+     * @param cacheSize
+     */
+    public synchronized void setCacheSize(int cacheSize) {
+        this.mapper = new Mapper(mapper.objectMapper, cacheSize);
+    }
+
+    @Override
+    MapMessageBinder getMapMessageBinder() {
+        return mapper.binder;
+    }
+
+    protected ObjectReader getReader(Class<?> clazz) {
+        final Mapper m = mapper;
+        return m.readers.get(clazz, m.objectMapper::readerFor);
+    }
+
+    protected ObjectWriter getWriter(Object object) {
+        final Mapper m = mapper;
+        return object == null ? m.objectMapper.writer() : m.writers.get(object.getClass(), m.objectMapper::writerFor);
+    }
+
+    @Override
+    public void warmUp(Class<?> clazz) {
+        // les ObjectReader et ObjectWriter typés résolvent leur (dé)sérialiseur racine à la création
+        final Mapper m = mapper;
+        m.readers.get(clazz, m.objectMapper::readerFor);
+        m.writers.get(clazz, m.objectMapper::writerFor);
+    }
+
+    @Override
+    public <T> T fromBytes(byte[] bytes, Class<T> clazz) throws MessageConversionException {
+        try {
+            return getReader(clazz).readValue(bytes);
+        } catch (IOException e) {
+            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
+        }
+    }
+
+    @Override
+    public <T> T fromString(String string, Class<T> clazz) throws MessageConversionException {
+        checkTextual();
+        try {
+            return getReader(clazz).readValue(string);
+        } catch (IOException e) {
+            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
+        }
+    }
+
+    @Override
+    public <T> T fromStream(InputStream inputStream, Class<T> clazz) throws MessageConversionException {
+        try {
+            return getReader(clazz).readValue(inputStream);
+        } catch (IOException e) {
+            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
+        }
+    }
+
+    @Override
+    public <T> T fromMap(Map<?, ?> values, Class<T> clazz) throws MessageConversionException {
+        return mapper.objectMapper.convertValue(values, clazz);
+    }
+
+    /**
+     * Décode un tableau (ou une suite de valeurs) élément par élément avec le parseur en flux de Jackson,
+     * la mémoire utilisée ne dépend pas de la taille du tableau. L'itérateur doit être fermé après usage.
+     * @param <T>
+     * @param inputStream
+     * @param clazz type des éléments
+     * @return
+     * @throws MessageConversionException
+     */
+    public <T> MappingIterator<T> iterate(InputStream inputStream, Class<T> clazz) throws MessageConversionException {
+        try {
+            return getReader(clazz).readValues(inputStream);
+        } catch (IOException e) {
+            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
+        }
+    }
+
+    /**
+     * @param <T>
+     * @param message {@link javax.jms.BytesMessage}, {@link javax.jms.StreamMessage} ou {@link javax.jms.TextMessage}
+     * @param clazz type des éléments
+     * @return
+     * @throws JMSException
+     * @see #iterate(InputStream, Class)
+     */
+    public <T> MappingIterator<T> iterate(Message message, Class<T> clazz) throws JMSException {
+        return iterate(getBodyStream(message), clazz);
+    }
+
+    /**
+     * @param <T>
+     * @param message
+     * @param clazz type des éléments
+     * @return un flux séquentiel des éléments, à fermer après usage
+     * @throws JMSException
+     * @see #iterate(InputStream, Class)
+     */
+    public <T> Stream<T> stream(Message message, Class<T> clazz) throws JMSException {
+        final MappingIterator<T> iterator = iterate(message, clazz);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize((Iterator<T>) iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        iterator.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * @param <T>
+     * @param message
+     * @param clazz type des éléments
+     * @param consumer appelé pour chaque élément
+     * @return le nombre d'éléments
+     * @throws JMSException
+     * @see #iterate(InputStream, Class)
+     */
+    public <T> int forEach(Message message, Class<T> clazz, ConsumerJmsException<T> consumer) throws JMSException {
+        int count = 0;
+        try (MappingIterator<T> iterator = iterate(message, clazz)) {
+            while (iterator.hasNextValue()) {
+                consumer.accept(iterator.nextValue());
+                count++;
+            }
+        } catch (IOException e) {
+            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
+        }
+        return count;
+    }
+
+    @Override
+    public byte[] toBytes(Object object) throws MessageConversionException {
+        try {
+            return getWriter(object).writeValueAsBytes(object);
+        } catch (JsonProcessingException e) {
+            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
+        }
+    }
+
+    @Override
+    public void toStream(Object object, OutputStream outputStream) throws MessageConversionException {
+        try {
+            getWriter(object).writeValue(outputStream, object);
+        } catch (IOException e) {
+            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
+        }
+    }
+
+    @Override
+    public String toString(Object object) throws MessageConversionException {
+        checkTextual();
+        try {
+            return getWriter(object).writeValueAsString(object);
+        } catch (JsonProcessingException e) {
+            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
+        }
+    }
+
+    private void checkTextual() {
+        final JsonFactory factory = mapper.objectMapper.getFactory();
+        if (factory.canHandleBinaryNatively()) {
+            throw new MessageConversionException("Text is not supported by the binary format : " + factory.getFormatName());
+        }
+    }
+
+    /**
+     * {@link ObjectMapper} et caches associés (lecteurs, écrivains, liaison des {@link javax.jms.MapMessage}), remplacés ensemble.
+     */
+    private static final class Mapper {
+
+        private final ObjectMapper objectMapper;
+        private final int cacheSize;
+        private final ClassCache<ObjectReader> readers;
+        private final ClassCache<ObjectWriter> writers;
+        private final MapMessageBinder binder;
+
+        private Mapper(ObjectMapper objectMapper, int cacheSize) {
+            this.objectMapper = objectMapper;
+            this.cacheSize = cacheSize;
+            this.readers = new ClassCache<>(cacheSize);
+            this.writers = new ClassCache<>(cacheSize);
+            this.binder = new MapMessageBinder(objectMapper);
+        }
+
+    }
+
+}
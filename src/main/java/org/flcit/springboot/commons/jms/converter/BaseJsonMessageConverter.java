@@ -16,15 +16,10 @@
 
 package org.flcit.springboot.commons.jms.converter;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.Map;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
 
-import org.springframework.jms.support.converter.MessageConversionException;
-
-import com.fasterxml.jackson.annotation.JsonInclude.Include;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -32,63 +27,49 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  * @since 
  * @author Florian Lestic
  */
-public abstract class BaseJsonMessageConverter extends BaseMessageConverter {
+public abstract class BaseJsonMessageConverter extends BaseJacksonMessageConverter implements BeanFactoryAware {
 
-    private static final String IOEXCEPTION_MESSAGE = "Une erreur s'est produite lors de la convertion du message";
+    /**
+     * Nom du bean {@link ObjectMapper} utilisé par les convertisseurs JSON
+     */
+    public static final String OBJECT_MAPPER_BEAN_NAME = "jmsObjectMapper";
 
-    private static final ObjectMapper objectMapper = new ObjectMapper()
-            .setSerializationInclusion(Include.NON_EMPTY)
-            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
-            .enable(DeserializationFeature.READ_UNKNOWN_ENUM_VALUES_AS_NULL);
+    /**
+     * Type de contenu JSON
+     */
+    public static final String MEDIA_TYPE = "application/json";
 
-    @Override
-    public <T> T fromBytes(byte[] bytes, Class<T> clazz) throws MessageConversionException {
-        try {
-            return objectMapper.readValue(bytes, clazz);
-        } catch (IOException e) {
-            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
-        }
-    }
+    private static final ObjectMapper DEFAULT_OBJECT_MAPPER = createDefaultObjectMapper();
 
-    @Override
-    public <T> T fromString(String string, Class<T> clazz) throws MessageConversionException {
-        try {
-            return objectMapper.readValue(string, clazz);
-        } catch (IOException e) {
-            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
-        }
+    protected BaseJsonMessageConverter() {
+        this(DEFAULT_OBJECT_MAPPER);
     }
 
-    @Override
-    public <T> T fromStream(InputStream inputStream, Class<T> clazz) throws MessageConversionException {
-        try {
-            return objectMapper.readValue(inputStream, clazz);
-        } catch (IOException e) {
-            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
-        }
+    protected BaseJsonMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
     }
 
-    @Override
-    public <T> T fromMap(Map<?, ?> values, Class<T> clazz) throws MessageConversionException {
-        return objectMapper.convertValue(values, clazz);
+    protected BaseJsonMessageConverter(ObjectMapper objectMapper, int cacheSize) {
+        super(objectMapper, cacheSize);
     }
 
-    @Override
-    public byte[] toBytes(Object object) throws MessageConversionException {
-        try {
-            return objectMapper.writeValueAsBytes(object);
-        } catch (JsonProcessingException e) {
-            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
-        }
+    /**
+     * @return un {@link ObjectMapper} avec la configuration par défaut des convertisseurs JSON
+     */
+    public static ObjectMapper createDefaultObjectMapper() {
+        return configure(new ObjectMapper());
     }
 
+    /**
+     * Applique le bean nommé {@value #OBJECT_MAPPER_BEAN_NAME} s'il est présent et qu'aucun {@link ObjectMapper}
+     * n'a été fourni au constructeur : exclu de l'injection par type, il n'est résolu que par son nom.
+     * @param beanFactory
+     */
     @Override
-    public String toString(Object object) throws MessageConversionException {
-        try {
-            return objectMapper.writeValueAsString(object);
-        } catch (JsonProcessingException e) {
-            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        if (getObjectMapper() == DEFAULT_OBJECT_MAPPER && beanFactory.containsBean(OBJECT_MAPPER_BEAN_NAME)) {
+            setObjectMapper(beanFactory.getBean(OBJECT_MAPPER_BEAN_NAME, ObjectMapper.class));
         }
     }
 
-}
\ No newline at end of file
+}
@@ -16,8 +16,12 @@
 
 package org.flcit.springboot.commons.jms.converter;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
-import java.util.Enumeration;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -30,12 +34,21 @@ import javax.jms.Session;
 import javax.jms.StreamMessage;
 import javax.jms.TextMessage;
 
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jms.support.converter.MessageConversionException;
 import org.springframework.jms.support.converter.MessageConverter;
 import org.springframework.util.CollectionUtils;
 
+import org.flcit.springboot.commons.jms.codec.PayloadCodec;
+import org.flcit.springboot.commons.jms.codec.PayloadCodecs;
+import org.flcit.springboot.commons.jms.codec.ThresholdCodecOutputStream;
 import org.flcit.springboot.commons.jms.domain.JmsWrapper;
+import org.flcit.springboot.commons.jms.domain.LazyJmsWrapper;
+import org.flcit.springboot.commons.jms.domain.LazyMessageHeaders;
+import org.flcit.springboot.commons.jms.streaming.InputStreamBytesMessage;
 import org.flcit.springboot.commons.jms.streaming.InputStreamMessage;
+import org.flcit.springboot.commons.jms.streaming.OutputStreamBytesMessage;
+import org.flcit.springboot.commons.jms.type.TypeRegistry;
 
 /**
  * 
@@ -44,6 +57,174 @@ import org.flcit.springboot.commons.jms.streaming.InputStreamMessage;
  */
 public abstract class BaseMessageConverter implements MessageConverter {
 
+    private static final String IOEXCEPTION_MESSAGE = "Une erreur s'est produite lors de l'écriture du message";
+    private static final String IOEXCEPTION_READ_MESSAGE = "Une erreur s'est produite lors de la lecture du message";
+
+    /**
+     * Taille par défaut (en octets) au-delà de laquelle le corps d'un {@link BytesMessage} est lu en streaming
+     */
+    public static final int DEFAULT_STREAMING_THRESHOLD = 1024 * 1024;
+    /**
+     * Taille par défaut (en octets) au-delà de laquelle le corps est compressé
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 16 * 1024;
+    /**
+     * Propriété JMS portant le type de contenu du corps, absente pour le format JSON
+     */
+    public static final String CONTENT_TYPE_PROPERTY = "contentType";
+
+    private int streamingThreshold = DEFAULT_STREAMING_THRESHOLD;
+    private String[] headerNames;
+    private PayloadCodec codec;
+    private int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+    private ConversionMetrics conversionMetrics;
+    private TypeRegistry typeRegistry;
+    private boolean lazyBody;
+    private boolean mapMessageBinding;
+    private boolean mapMessageOutput;
+
+    /**
+     * @return
+     */
+    public int getStreamingThreshold() {
+        return streamingThreshold;
+    }
+
+    /**
+     * Taille (en octets) au-delà de laquelle le corps d'un {@link BytesMessage} est transmis
+     * à {@link #fromStream(InputStream, Class)} au lieu d'être chargé en mémoire pour {@link #fromBytes(byte[], Class)}.
+     * @param streamingThreshold
+     */
+    public void setStreamingThreshold(int streamingThreshold) {
+        this.streamingThreshold = streamingThreshold;
+    }
+
+    /**
+     * @return
+     */
+    public String[] getHeaderNames() {
+        return headerNames != null ? headerNames.clone() : null;
+    }
+
+    /**
+     * Limite les en-têtes d'un {@link JmsWrapper} aux propriétés indiquées.
+     * Sans projection, les en-têtes sont une vue paresseuse du message ({@link LazyMessageHeaders}).
+     * @param headerNames
+     */
+    public void setHeaderNames(String... headerNames) {
+        this.headerNames = headerNames != null && headerNames.length > 0 ? Arrays.copyOf(headerNames, headerNames.length) : null;
+    }
+
+    /**
+     * @return
+     */
+    public PayloadCodec getCodec() {
+        return codec;
+    }
+
+    /**
+     * Codec de compression appliqué par {@link #toMessage(Object, Session)} au-delà de {@link #getCompressionThreshold()}.
+     * La décompression par {@link #fromMessage(Message)} s'appuie sur {@link PayloadCodecs} quel que soit ce paramètre.
+     * @param codec
+     */
+    public void setCodec(PayloadCodec codec) {
+        this.codec = codec;
+    }
+
+    /**
+     * @return
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * @param compressionThreshold
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    /**
+     * @return
+     */
+    public ConversionMetrics getConversionMetrics() {
+        return conversionMetrics;
+    }
+
+    /**
+     * Injecté automatiquement si un bean {@link ConversionMetrics} est présent.
+     * @param conversionMetrics
+     */
+    @Autowired(required = false)
+    public void setConversionMetrics(ConversionMetrics conversionMetrics) {
+        this.conversionMetrics = conversionMetrics;
+    }
+
+    /**
+     * @return
+     */
+    public TypeRegistry getTypeRegistry() {
+        return typeRegistry;
+    }
+
+    /**
+     * Registre utilisé par défaut par {@link #getClassResult(Message)} et pour écrire l'identifiant de type
+     * dans {@link #toMessage(Object, Session)}. Injecté automatiquement si un bean {@link TypeRegistry} est présent.
+     * @param typeRegistry
+     */
+    @Autowired(required = false)
+    public void setTypeRegistry(TypeRegistry typeRegistry) {
+        this.typeRegistry = typeRegistry;
+    }
+
+    /**
+     * @return
+     */
+    public boolean isLazyBody() {
+        return lazyBody;
+    }
+
+    /**
+     * Produit des {@link LazyJmsWrapper} dont le corps n'est décodé qu'au premier appel de {@link JmsWrapper#getObject()}.
+     * @param lazyBody
+     */
+    public void setLazyBody(boolean lazyBody) {
+        this.lazyBody = lazyBody;
+    }
+
+    /**
+     * @return
+     */
+    public boolean isMapMessageBinding() {
+        return mapMessageBinding;
+    }
+
+    /**
+     * Alimente directement les propriétés du bean cible depuis les entrées des {@link MapMessage},
+     * sans passer par {@link #fromMap(Map, Class)}. Les classes sans constructeur par défaut restent converties par {@link #fromMap(Map, Class)}.
+     * @param mapMessageBinding
+     */
+    public void setMapMessageBinding(boolean mapMessageBinding) {
+        this.mapMessageBinding = mapMessageBinding;
+    }
+
+    /**
+     * @return
+     */
+    public boolean isMapMessageOutput() {
+        return mapMessageOutput;
+    }
+
+    /**
+     * Produit un {@link MapMessage} pour les POJO dont toutes les propriétés sont d'un type porté par un {@link MapMessage}
+     * ou une énumération, les autres objets restent écrits dans un {@link BytesMessage}.
+     * @param mapMessageOutput
+     */
+    public void setMapMessageOutput(boolean mapMessageOutput) {
+        this.mapMessageOutput = mapMessageOutput;
+    }
+
     /**
      * @param <T>
      * @param bytes
@@ -89,16 +270,99 @@ public abstract class BaseMessageConverter implements MessageConverter {
      */
     public abstract String toString(Object object) throws MessageConversionException;
     /**
+     * Sérialise l'objet directement dans le flux de sortie.
+     * L'implémentation par défaut s'appuie sur {@link #toBytes(Object)}.
+     * @param object
+     * @param outputStream
+     * @throws MessageConversionException
+     */
+    public void toStream(Object object, OutputStream outputStream) throws MessageConversionException {
+        try {
+            outputStream.write(toBytes(object));
+        } catch (IOException e) {
+            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
+        }
+    }
+
+    /**
+     * Construit par avance les structures de conversion de la classe (sérialiseurs, désérialiseurs...)
+     * afin de ne pas les construire au premier message.
+     * @param clazz
+     */
+    public void warmUp(Class<?> clazz) {
+        // aucune structure à préparer par défaut
+    }
+
+    /**
+     * Résout la classe cible via le {@link TypeRegistry}, à redéfinir en l'absence de registre.
      * @param message
      * @return
      * @throws JMSException
      */
-    public abstract Class<?> getClassResult(Message message) throws JMSException;
+    public Class<?> getClassResult(Message message) throws JMSException {
+        if (typeRegistry == null) {
+            throw new IllegalStateException("No TypeRegistry configured, getClassResult must be overridden");
+        }
+        return typeRegistry.resolve(message);
+    }
+
+    /**
+     * @return le type de contenu écrit dans la propriété {@value #CONTENT_TYPE_PROPERTY} par {@link #toMessage(Object, Session)},
+     * null pour ne pas l'écrire
+     */
+    protected String getContentType() {
+        return null;
+    }
+
+    /**
+     * @return la liaison directe avec les {@link MapMessage}, null si le convertisseur ne la supporte pas
+     */
+    MapMessageBinder getMapMessageBinder() {
+        return null;
+    }
+
+    /**
+     * @param message
+     * @return le convertisseur utilisé pour décoder le corps du message
+     * @throws JMSException
+     */
+    protected BaseMessageConverter getDecoder(Message message) throws JMSException {
+        return this;
+    }
 
     @Override
     public Object fromMessage(Message message) throws JMSException, MessageConversionException {
-        final Class<?> classResult = getClassResult(message);
+        return fromMessage(message, getClassResult(message));
+    }
+
+    /**
+     * Convertit le message vers la classe indiquée, sans passer par {@link #getClassResult(Message)}.
+     * @param <T>
+     * @param message
+     * @param classResult
+     * @return
+     * @throws JMSException
+     * @throws MessageConversionException
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T fromMessage(Message message, Class<T> classResult) throws JMSException, MessageConversionException {
+        final ConversionMetrics metrics = this.conversionMetrics;
+        if (metrics == null) {
+            return (T) convert(message, classResult);
+        }
+        final long start = System.nanoTime();
+        try {
+            return (T) convert(message, classResult);
+        } finally {
+            metrics.recordFromMessage(message, classResult, System.nanoTime() - start);
+        }
+    }
+
+    private Object convert(final Message message, final Class<?> classResult) throws JMSException {
         if (classResult == JmsWrapper.class) {
+            if (lazyBody) {
+                return new LazyJmsWrapper<Object>(readHeaders(message), () -> getResult(message, classResult));
+            }
             final JmsWrapper<Object> wrapper = new JmsWrapper<>();
             wrapper.setObject(getResult(message, classResult));
             wrapper.setHeaders(readHeaders(message));
@@ -109,50 +373,177 @@ public abstract class BaseMessageConverter implements MessageConverter {
     }
 
     private <T> T getResult(final Message message, final Class<T> classResult) throws JMSException {
+        final BaseMessageConverter decoder = getDecoder(message);
+        final String contentEncoding = message.getStringProperty(PayloadCodecs.CONTENT_ENCODING);
+        if (contentEncoding != null) {
+            return getDecodedResult(decoder, message, classResult);
+        }
         if (message instanceof TextMessage) {
-            return fromString(((TextMessage) message).getText(), classResult);
+            return decoder.fromString(((TextMessage) message).getText(), classResult);
         } else if (message instanceof BytesMessage) {
-            final byte[] bytes = new byte[(int) ((BytesMessage) message).getBodyLength()];
-            ((BytesMessage) message).readBytes(bytes);
-            return fromBytes(bytes, classResult);
+            final BytesMessage bytesMessage = (BytesMessage) message;
+            final long bodyLength = bytesMessage.getBodyLength();
+            if (bodyLength > streamingThreshold) {
+                try (InputStreamBytesMessage is = new InputStreamBytesMessage(bytesMessage)) {
+                    return decoder.fromStream(is, classResult);
+                }
+            }
+            final byte[] bytes = new byte[(int) bodyLength];
+            bytesMessage.readBytes(bytes);
+            return decoder.fromBytes(bytes, classResult);
         } else if (message instanceof StreamMessage) {
             try (InputStreamMessage is = new InputStreamMessage((StreamMessage) message)) {
-                return fromStream(is, classResult);
+                return decoder.fromStream(is, classResult);
             }
         } else if (message instanceof MapMessage) {
-            return fromMap(((MapMessage) message).getBody(Map.class), classResult);
+            final MapMessageBinder binder = mapMessageBinding ? decoder.getMapMessageBinder() : null;
+            if (binder != null && binder.isReadable(classResult)) {
+                return binder.read((MapMessage) message, classResult);
+            }
+            return decoder.fromMap(((MapMessage) message).getBody(Map.class), classResult);
         }
         throw new IllegalStateException("Message type is not supported : " + message.getClass().getName());
     }
 
+    private static <T> T getDecodedResult(final BaseMessageConverter decoder, final Message message, final Class<T> classResult) throws JMSException {
+        try (InputStream is = getBodyStream(message)) {
+            return decoder.fromStream(is, classResult);
+        } catch (IOException e) {
+            throw new MessageConversionException(IOEXCEPTION_READ_MESSAGE, e);
+        }
+    }
+
+    /**
+     * @param message {@link BytesMessage}, {@link StreamMessage} ou {@link TextMessage} (sans codec, le corps encodé étant binaire)
+     * @return le corps du message sous forme de flux, décodé selon la propriété {@value PayloadCodecs#CONTENT_ENCODING}
+     * @throws JMSException
+     */
+    protected static InputStream getBodyStream(final Message message) throws JMSException {
+        final String contentEncoding = message.getStringProperty(PayloadCodecs.CONTENT_ENCODING);
+        if (contentEncoding != null && !(message instanceof BytesMessage || message instanceof StreamMessage)) {
+            throw new IllegalStateException("Message type is not supported with codec : " + message.getClass().getName());
+        }
+        final InputStream body;
+        if (message instanceof BytesMessage) {
+            body = new InputStreamBytesMessage((BytesMessage) message);
+        } else if (message instanceof StreamMessage) {
+            body = new InputStreamMessage((StreamMessage) message);
+        } else if (message instanceof TextMessage) {
+            final String text = ((TextMessage) message).getText();
+            body = new ByteArrayInputStream(text != null ? text.getBytes(StandardCharsets.UTF_8) : new byte[0]);
+        } else {
+            throw new IllegalStateException("Message type is not supported : " + message.getClass().getName());
+        }
+        if (contentEncoding == null) {
+            return body;
+        }
+        final PayloadCodec payloadCodec = PayloadCodecs.get(contentEncoding);
+        if (payloadCodec == null) {
+            throw new MessageConversionException("Codec is not supported : " + contentEncoding);
+        }
+        try {
+            return payloadCodec.decode(body);
+        } catch (IOException e) {
+            throw new MessageConversionException(IOEXCEPTION_READ_MESSAGE, e);
+        }
+    }
+
+    /**
+     * Aller-retour de conversion de l'objet au travers d'un message de la session, sans mesure par {@link ConversionMetrics},
+     * destiné au préchauffage.
+     * @param object
+     * @param session
+     * @return l'objet relu
+     * @throws JMSException
+     * @throws MessageConversionException
+     */
+    public Object roundTrip(Object object, Session session) throws JMSException, MessageConversionException {
+        final Message message = toMessage(object, session, null);
+        // passage du corps en lecture seule
+        if (message instanceof BytesMessage) {
+            ((BytesMessage) message).reset();
+        } else if (message instanceof StreamMessage) {
+            ((StreamMessage) message).reset();
+        }
+        return convert(message, getClassResult(message));
+    }
+
     @Override
     public Message toMessage(Object object, Session session) throws JMSException, MessageConversionException {
-        final BytesMessage message = session.createBytesMessage();
+        return toMessage(object, session, this.conversionMetrics);
+    }
+
+    private Message toMessage(final Object object, final Session session, final ConversionMetrics metrics) throws JMSException {
+        final long start = metrics != null ? System.nanoTime() : 0;
+        final Object body = object instanceof JmsWrapper<?> ? ((JmsWrapper<?>) object).getObject() : object;
+        final Message message;
+        final long bodySize;
+        final MapMessageBinder binder = mapMessageOutput && body != null ? getMapMessageBinder() : null;
+        final boolean map = binder != null && binder.isFlat(body.getClass());
+        if (map) {
+            final MapMessage mapMessage = session.createMapMessage();
+            binder.write(body, mapMessage);
+            message = mapMessage;
+            bodySize = -1;
+        } else {
+            final BytesMessage bytesMessage = session.createBytesMessage();
+            bodySize = writeBody(bytesMessage, body);
+            message = bytesMessage;
+        }
         if (object instanceof JmsWrapper<?>) {
-            message.writeBytes(toBytes(((JmsWrapper<?>) object).getObject()));
             writeHeaders(message, ((JmsWrapper<?>) object).getHeaders());
-        } else {
-            message.writeBytes(toBytes(object));
+        }
+        final String contentType = getContentType();
+        if (contentType != null && !map) {
+            message.setStringProperty(CONTENT_TYPE_PROPERTY, contentType);
+        }
+        if (typeRegistry != null && body != null) {
+            final String typeId = typeRegistry.getTypeId(body.getClass());
+            if (typeId != null) {
+                message.setStringProperty(typeRegistry.getPropertyName(), typeId);
+            }
+        }
+        if (metrics != null) {
+            metrics.recordToMessage(message, body, bodySize, System.nanoTime() - start);
         }
         return message;
     }
 
+    private long writeBody(final BytesMessage message, final Object object) {
+        try (OutputStreamBytesMessage os = new OutputStreamBytesMessage(message)) {
+            try (OutputStream out = codec != null ? new ThresholdCodecOutputStream(os, message, codec, compressionThreshold) : os) {
+                toStream(object, out);
+            }
+            return os.getSize();
+        } catch (IOException e) {
+            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
+        }
+    }
+
     private static final Message writeHeaders(final Message message, final Map<String, Object> headers) throws JMSException {
         if (CollectionUtils.isEmpty(headers)) {
             return message;
         }
         for (Entry<String, Object> entry : headers.entrySet()) {
-            message.setObjectProperty(entry.getKey(), entry.getValue());
+            // le codec et le type de contenu sont propres au corps écrit par ce convertisseur
+            if (!PayloadCodecs.CONTENT_ENCODING.equals(entry.getKey()) && !CONTENT_TYPE_PROPERTY.equals(entry.getKey())) {
+                message.setObjectProperty(entry.getKey(), entry.getValue());
+            }
         }
         return message;
     }
 
-    private static final Map<String, Object> readHeaders(final Message message) throws JMSException {
-        final Enumeration<?> enumeration = message.getPropertyNames();
-        final Map<String, Object> headers = new HashMap<>(0);
-        while (enumeration.hasMoreElements()) {
-            final String name = (String) enumeration.nextElement();
-            headers.put(name, message.getObjectProperty(name));
+    private Map<String, Object> readHeaders(final Message message) throws JMSException {
+        final String[] names = this.headerNames;
+        if (names == null) {
+            return new LazyMessageHeaders(message);
+        }
+        final Map<String, Object> headers = new HashMap<>((int) (names.length / 0.75f) + 1);
+        for (String name : names) {
+            final Object value = message.getObjectProperty(name);
+            if (value != null) {
+                headers.put(name, value);
+            }
         }
         return headers;
     }
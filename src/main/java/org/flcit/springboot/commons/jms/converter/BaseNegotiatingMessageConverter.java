@@ -0,0 +1,196 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.converter;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.util.ClassUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Convertisseur négociant le format d'après la propriété {@value BaseMessageConverter#CONTENT_TYPE_PROPERTY} :
+ * le décodeur est choisi par message (JSON en son absence) et l'encodage se fait dans le format configuré.
+ * Les formats Smile et CBOR sont disponibles si les modules <i>jackson-dataformat</i> correspondants sont présents.
+ * Le format JSON utilise le bean {@value BaseJsonMessageConverter#OBJECT_MAPPER_BEAN_NAME} s'il est présent,
+ * les formats binaires leur propre {@link ObjectMapper}, remplaçable par {@link #setObjectMapper(String, ObjectMapper)}.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public abstract class BaseNegotiatingMessageConverter extends BaseMessageConverter implements BeanFactoryAware {
+
+    private final Map<String, BaseJacksonMessageConverter> decoders;
+    private final BaseJacksonMessageConverter defaultDecoder;
+    private final BaseJacksonMessageConverter encoder;
+    private final boolean defaultObjectMapper;
+
+    protected BaseNegotiatingMessageConverter() {
+        this(BaseJsonMessageConverter.MEDIA_TYPE);
+    }
+
+    /**
+     * @param contentType type de contenu des messages produits
+     */
+    protected BaseNegotiatingMessageConverter(String contentType) {
+        this(contentType, BaseJsonMessageConverter.createDefaultObjectMapper(), true);
+    }
+
+    /**
+     * @param contentType type de contenu des messages produits
+     * @param objectMapper {@link ObjectMapper} du format JSON, conservé même en présence du bean {@value BaseJsonMessageConverter#OBJECT_MAPPER_BEAN_NAME}
+     */
+    protected BaseNegotiatingMessageConverter(String contentType, ObjectMapper objectMapper) {
+        this(contentType, objectMapper, false);
+    }
+
+    private BaseNegotiatingMessageConverter(String contentType, ObjectMapper objectMapper, boolean defaultObjectMapper) {
+        this.defaultObjectMapper = defaultObjectMapper;
+        final ClassLoader classLoader = BaseNegotiatingMessageConverter.class.getClassLoader();
+        final Map<String, BaseJacksonMessageConverter> map = new HashMap<>(4);
+        map.put(BaseJsonMessageConverter.MEDIA_TYPE, new Delegate(objectMapper, null));
+        if (ClassUtils.isPresent("com.fasterxml.jackson.dataformat.smile.SmileFactory", classLoader)) {
+            map.put(BaseSmileMessageConverter.MEDIA_TYPE, new Delegate(BaseSmileMessageConverter.createDefaultObjectMapper(), BaseSmileMessageConverter.MEDIA_TYPE));
+        }
+        if (ClassUtils.isPresent("com.fasterxml.jackson.dataformat.cbor.CBORFactory", classLoader)) {
+            map.put(BaseCborMessageConverter.MEDIA_TYPE, new Delegate(BaseCborMessageConverter.createDefaultObjectMapper(), BaseCborMessageConverter.MEDIA_TYPE));
+        }
+        this.decoders = Collections.unmodifiableMap(map);
+        this.defaultDecoder = map.get(BaseJsonMessageConverter.MEDIA_TYPE);
+        this.encoder = map.get(contentType);
+        if (this.encoder == null) {
+            throw new IllegalArgumentException("Content type is not supported : " + contentType);
+        }
+    }
+
+    /**
+     * Applique au format JSON le bean nommé {@value BaseJsonMessageConverter#OBJECT_MAPPER_BEAN_NAME} s'il est présent
+     * et qu'aucun {@link ObjectMapper} n'a été fourni au constructeur.
+     * @param beanFactory
+     */
+    @Override
+    public void setBeanFactory(BeanFactory beanFactory) throws BeansException {
+        if (defaultObjectMapper && beanFactory.containsBean(BaseJsonMessageConverter.OBJECT_MAPPER_BEAN_NAME)) {
+            defaultDecoder.setObjectMapper(beanFactory.getBean(BaseJsonMessageConverter.OBJECT_MAPPER_BEAN_NAME, ObjectMapper.class));
+        }
+    }
+
+    /**
+     * @param contentType
+     * @param objectMapper {@link ObjectMapper} du format, dont la fabrique doit correspondre au type de contenu
+     */
+    public void setObjectMapper(String contentType, ObjectMapper objectMapper) {
+        final BaseJacksonMessageConverter decoder = decoders.get(contentType);
+        if (decoder == null) {
+            throw new IllegalArgumentException("Content type is not supported : " + contentType);
+        }
+        decoder.setObjectMapper(objectMapper);
+    }
+
+    @Override
+    protected BaseMessageConverter getDecoder(Message message) throws JMSException {
+        final String contentType = message.getStringProperty(CONTENT_TYPE_PROPERTY);
+        if (contentType == null) {
+            return defaultDecoder;
+        }
+        final BaseJacksonMessageConverter decoder = decoders.get(contentType);
+        if (decoder == null) {
+            throw new MessageConversionException("Content type is not supported : " + contentType);
+        }
+        return decoder;
+    }
+
+    @Override
+    protected String getContentType() {
+        return encoder.getContentType();
+    }
+
+    @Override
+    MapMessageBinder getMapMessageBinder() {
+        return encoder.getMapMessageBinder();
+    }
+
+    @Override
+    public void warmUp(Class<?> clazz) {
+        for (BaseJacksonMessageConverter decoder : decoders.values()) {
+            decoder.warmUp(clazz);
+        }
+    }
+
+    @Override
+    public <T> T fromBytes(byte[] bytes, Class<T> clazz) throws MessageConversionException {
+        return defaultDecoder.fromBytes(bytes, clazz);
+    }
+
+    @Override
+    public <T> T fromString(String string, Class<T> clazz) throws MessageConversionException {
+        return defaultDecoder.fromString(string, clazz);
+    }
+
+    @Override
+    public <T> T fromStream(InputStream inputStream, Class<T> clazz) throws MessageConversionException {
+        return defaultDecoder.fromStream(inputStream, clazz);
+    }
+
+    @Override
+    public <T> T fromMap(Map<?, ?> values, Class<T> clazz) throws MessageConversionException {
+        return defaultDecoder.fromMap(values, clazz);
+    }
+
+    @Override
+    public byte[] toBytes(Object object) throws MessageConversionException {
+        return encoder.toBytes(object);
+    }
+
+    @Override
+    public void toStream(Object object, OutputStream outputStream) throws MessageConversionException {
+        encoder.toStream(object, outputStream);
+    }
+
+    @Override
+    public String toString(Object object) throws MessageConversionException {
+        return encoder.toString(object);
+    }
+
+    private static final class Delegate extends BaseJacksonMessageConverter {
+
+        private final String contentType;
+
+        Delegate(ObjectMapper objectMapper, String contentType) {
+            super(objectMapper);
+            this.contentType = contentType;
+        }
+
+        @Override
+        protected String getContentType() {
+            return contentType;
+        }
+
+    }
+
+}
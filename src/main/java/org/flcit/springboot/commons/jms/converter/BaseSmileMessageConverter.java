@@ -0,0 +1,57 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.converter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * Convertisseur au format binaire Smile, le type de contenu est porté par la propriété {@value BaseMessageConverter#CONTENT_TYPE_PROPERTY}.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public abstract class BaseSmileMessageConverter extends BaseJacksonMessageConverter {
+
+    /**
+     * Type de contenu Smile
+     */
+    public static final String MEDIA_TYPE = "application/x-jackson-smile";
+
+    private static final ObjectMapper DEFAULT_OBJECT_MAPPER = createDefaultObjectMapper();
+
+    protected BaseSmileMessageConverter() {
+        this(DEFAULT_OBJECT_MAPPER);
+    }
+
+    protected BaseSmileMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    /**
+     * @return un {@link ObjectMapper} Smile avec la configuration par défaut des convertisseurs
+     */
+    public static ObjectMapper createDefaultObjectMapper() {
+        return configure(new ObjectMapper(new SmileFactory()));
+    }
+
+    @Override
+    protected String getContentType() {
+        return MEDIA_TYPE;
+    }
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.converter;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * Cache concurrent borné indexé par classe : au-delà de la taille maximale les valeurs sont calculées sans être conservées.
+ * @param <V>
+ * @since 
+ * @author Florian Lestic
+ */
+final class ClassCache<V> {
+
+    private final ConcurrentMap<Class<?>, V> values = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    ClassCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    V get(Class<?> clazz, Function<Class<?>, V> factory) {
+        V value = values.get(clazz);
+        if (value != null) {
+            return value;
+        }
+        value = factory.apply(clazz);
+        if (values.size() < maxSize) {
+            final V previous = values.putIfAbsent(clazz, value);
+            if (previous != null) {
+                return previous;
+            }
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.converter;
+
+import javax.jms.Message;
+
+/**
+ * Mesures des conversions réalisées par {@link BaseMessageConverter}.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public interface ConversionMetrics {
+
+    /**
+     * @param message
+     * @param classResult
+     * @param durationNanos
+     */
+    void recordFromMessage(Message message, Class<?> classResult, long durationNanos);
+
+    /**
+     * @param message
+     * @param object
+     * @param bodySize taille du corps écrit en octets, -1 si elle n'est pas connue
+     * @param durationNanos
+     */
+    void recordToMessage(Message message, Object object, long bodySize, long durationNanos);
+
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.converter;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.AnnotatedConstructor;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedParameter;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+
+/**
+ * Liaison directe entre les entrées d'un {@link MapMessage} et les propriétés d'un bean,
+ * au travers d'accesseurs résolus une fois par classe puis conservés.
+ * Les propriétés sont celles de l'introspection Jackson de l'{@link ObjectMapper} du convertisseur
+ * (noms, <code>@JsonProperty</code>, <code>@JsonIgnore</code>, inclusion), afin que les clés soient celles du format JSON.
+ * Seuls les POJO applicatifs sont liés : les types <code>java.*</code>, {@link CharSequence}, {@link Collection}, {@link Map}
+ * et les tableaux restent convertis par le convertisseur.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class MapMessageBinder {
+
+    private static final int DEFAULT_CACHE_SIZE = 256;
+    private static final String IOEXCEPTION_MESSAGE = "Une erreur s'est produite lors de la liaison du MapMessage";
+
+    private final ObjectMapper objectMapper;
+    private final ClassCache<BeanMapping> mappings = new ClassCache<>(DEFAULT_CACHE_SIZE);
+
+    /**
+     * @param objectMapper {@link ObjectMapper} dont l'introspection définit les propriétés liées
+     */
+    MapMessageBinder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param clazz
+     * @return true si le bean peut être instancié et alimenté depuis un {@link MapMessage}
+     */
+    boolean isReadable(Class<?> clazz) {
+        return mappings.get(clazz, this::createMapping).readable;
+    }
+
+    /**
+     * @param clazz
+     * @return true si toutes les propriétés du bean sont d'un type porté par un {@link MapMessage} (primitif, {@link String}, byte[])
+     * ou une énumération, et peuvent être relues
+     */
+    boolean isFlat(Class<?> clazz) {
+        return mappings.get(clazz, this::createMapping).flat;
+    }
+
+    <T> T read(MapMessage message, Class<T> clazz) throws JMSException {
+        final BeanMapping mapping = mappings.get(clazz, this::createMapping);
+        try {
+            final Object bean = mapping.constructor.newInstance();
+            for (Property property : mapping.writers) {
+                final Object value = message.getObject(property.name);
+                if (value != null) {
+                    property.member.setValue(bean, property.convert(value));
+                }
+            }
+            return clazz.cast(bean);
+        } catch (InstantiationException | IllegalAccessException | InvocationTargetException | RuntimeException e) {
+            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
+        }
+    }
+
+    void write(Object bean, MapMessage message) throws JMSException {
+        final BeanMapping mapping = mappings.get(bean.getClass(), this::createMapping);
+        try {
+            for (Property property : mapping.readers) {
+                final Object value = property.member.getValue(bean);
+                if (property.isIncluded(value)) {
+                    message.setObject(property.name, value instanceof Enum<?> ? ((Enum<?>) value).name() : value);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new MessageConversionException(IOEXCEPTION_MESSAGE, e);
+        }
+    }
+
+    private BeanMapping createMapping(Class<?> clazz) {
+        return isBeanType(clazz) ? new BeanMapping(objectMapper, clazz) : BeanMapping.NONE;
+    }
+
+    /**
+     * Seuls ces types sont relus à l'identique : les autres types simples (Date, Temporal, Locale...) seraient écrits par toString().
+     */
+    private static boolean isFlatType(Class<?> clazz) {
+        return ClassUtils.isPrimitiveOrWrapper(clazz) || clazz == String.class || clazz == byte[].class || clazz.isEnum();
+    }
+
+    /**
+     * @return true pour un POJO applicatif, dont les accesseurs décrivent le contenu
+     */
+    private static boolean isBeanType(Class<?> clazz) {
+        return !clazz.isArray() && !clazz.isPrimitive() && !clazz.isEnum()
+                && !clazz.getName().startsWith("java.")
+                && !CharSequence.class.isAssignableFrom(clazz)
+                && !Collection.class.isAssignableFrom(clazz)
+                && !Map.class.isAssignableFrom(clazz);
+    }
+
+    private static final class Property {
+
+        private static final ConversionService CONVERSION_SERVICE = DefaultConversionService.getSharedInstance();
+
+        private final String name;
+        private final Class<?> type;
+        private final AnnotatedMember member;
+        private final JsonInclude.Include inclusion;
+
+        private Property(BeanPropertyDefinition definition, AnnotatedMember member, JsonInclude.Include inclusion) {
+            this.name = definition.getName();
+            this.type = definition.getRawPrimaryType();
+            this.member = member;
+            this.inclusion = inclusion;
+            final Member target = member.getMember();
+            if (target instanceof Method) {
+                ReflectionUtils.makeAccessible((Method) target);
+            } else if (target instanceof Field) {
+                ReflectionUtils.makeAccessible((Field) target);
+            }
+        }
+
+        private Object convert(Object value) {
+            return ClassUtils.isAssignableValue(type, value) ? value : CONVERSION_SERVICE.convert(value, type);
+        }
+
+        private boolean isIncluded(Object value) {
+            if (value == null) {
+                return false;
+            }
+            if (inclusion == JsonInclude.Include.NON_EMPTY || inclusion == JsonInclude.Include.NON_DEFAULT) {
+                return !("".equals(value) || value instanceof byte[] && ((byte[]) value).length == 0);
+            }
+            return true;
+        }
+
+    }
+
+    private static final class BeanMapping {
+
+        private static final BeanMapping NONE = new BeanMapping();
+
+        private final Constructor<?> constructor;
+        private final Property[] readers;
+        private final Property[] writers;
+        private final boolean readable;
+        private final boolean flat;
+
+        private BeanMapping() {
+            this.constructor = null;
+            this.readers = new Property[0];
+            this.writers = new Property[0];
+            this.readable = false;
+            this.flat = false;
+        }
+
+        private BeanMapping(ObjectMapper objectMapper, Class<?> clazz) {
+            final SerializationConfig config = objectMapper.getSerializationConfig();
+            final BeanDescription serialization = config.introspect(objectMapper.constructType(clazz));
+            final BeanDescription deserialization = objectMapper.getDeserializationConfig().introspect(objectMapper.constructType(clazz));
+            final JsonInclude.Value classInclusion = serialization.findPropertyInclusion(config.getDefaultPropertyInclusion(clazz));
+            final List<Property> readerList = new ArrayList<>();
+            final List<Property> writerList = new ArrayList<>();
+            final Map<String, Property> writersByName = new HashMap<>();
+            for (BeanPropertyDefinition definition : deserialization.findProperties()) {
+                final AnnotatedMember mutator = definition.getMutator();
+                // les paramètres de constructeur (@JsonCreator) ne sont pas liés
+                if (mutator != null && !(mutator instanceof AnnotatedParameter)) {
+                    final Property property = new Property(definition, mutator, null);
+                    writerList.add(property);
+                    writersByName.put(property.name, property);
+                }
+            }
+            boolean simple = true;
+            for (BeanPropertyDefinition definition : serialization.findProperties()) {
+                final AnnotatedMember accessor = definition.getAccessor();
+                if (accessor == null) {
+                    continue;
+                }
+                final JsonInclude.Value inclusion = classInclusion.withOverrides(definition.findInclusion());
+                final Property property = new Property(definition, accessor, inclusion.getValueInclusion());
+                readerList.add(property);
+                // chaque propriété écrite doit être relue sous le même nom
+                simple &= isFlatType(property.type) && writersByName.containsKey(property.name);
+            }
+            final AnnotatedConstructor defaultConstructor = Modifier.isAbstract(clazz.getModifiers()) ? null : deserialization.findDefaultConstructor();
+            this.constructor = defaultConstructor != null ? defaultConstructor.getAnnotated() : null;
+            if (constructor != null) {
+                ReflectionUtils.makeAccessible(constructor);
+            }
+            this.readers = readerList.toArray(new Property[0]);
+            this.writers = writerList.toArray(new Property[0]);
+            this.readable = constructor != null && !writerList.isEmpty();
+            this.flat = simple && readable && !readerList.isEmpty();
+        }
+
+    }
+
+}
@@ -19,6 +19,7 @@ package org.flcit.springboot.commons.jms.creator;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 
 import javax.jms.JMSException;
 import javax.jms.Message;
@@ -26,7 +27,6 @@ import javax.jms.Session;
 import javax.jms.StreamMessage;
 
 import org.springframework.jms.core.MessageCreator;
-import org.springframework.util.StreamUtils;
 
 import org.flcit.springboot.commons.jms.functional.ConsumerJmsException;
 import org.flcit.springboot.commons.jms.streaming.OutputStreamMessage;
@@ -39,30 +39,55 @@ import org.flcit.springboot.commons.jms.streaming.OutputStreamMessage;
 public class StreamingMessageCreator implements MessageCreator {
 
     private final ConsumerJmsException<OutputStream> consumer;
+    private final int fieldSize;
+    private final boolean trailer;
 
     /**
      * @param inputStream
      */
     public StreamingMessageCreator(InputStream inputStream) {
+        this(inputStream, OutputStreamMessage.DEFAULT_FIELD_SIZE, false);
+    }
+
+    /**
+     * @param inputStream
+     * @param fieldSize taille maximale d'un champ du {@link StreamMessage}, également utilisée comme taille du buffer de copie
+     * @param trailer ajoute le nombre d'octets et le CRC32 du flux en propriétés du message
+     */
+    public StreamingMessageCreator(InputStream inputStream, int fieldSize, boolean trailer) {
         this(outputStream -> {
             try {
-                StreamUtils.copy(inputStream, outputStream);
+                final byte[] buffer = new byte[fieldSize];
+                int n;
+                while ((n = inputStream.read(buffer)) != -1) {
+                    outputStream.write(buffer, 0, n);
+                }
             } catch (IOException e) {
                 final JMSException exc = new JMSException(e.getClass().getSimpleName());
                 exc.setLinkedException(e);
                 throw exc;
             }
-        });
+        }, fieldSize, trailer);
     }
 
-    private StreamingMessageCreator(ConsumerJmsException<OutputStream> consumer) {
+    private StreamingMessageCreator(ConsumerJmsException<OutputStream> consumer, int fieldSize, boolean trailer) {
         this.consumer = consumer;
+        this.fieldSize = fieldSize;
+        this.trailer = trailer;
     }
 
     @Override
     public Message createMessage(Session session) throws JMSException {
         final StreamMessage streamMessage = session.createStreamMessage();
-        consumer.accept(new OutputStreamMessage(streamMessage));
+        final OutputStreamMessage outputStream = new OutputStreamMessage(streamMessage, fieldSize, trailer);
+        consumer.accept(outputStream);
+        try {
+            outputStream.close();
+        } catch (UncheckedIOException e) {
+            final JMSException exc = new JMSException(e.getCause().getClass().getSimpleName());
+            exc.setLinkedException(e.getCause());
+            throw exc;
+        }
         return streamMessage;
     }
 
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.domain;
+
+import java.util.Map;
+
+import javax.jms.JMSException;
+
+import org.springframework.jms.support.JmsUtils;
+
+import org.flcit.springboot.commons.jms.functional.SupplierJmsException;
+
+/**
+ * {@link JmsWrapper} dont le corps n'est décodé qu'au premier appel de {@link #getObject()}, puis conservé.
+ * Les en-têtes sont disponibles immédiatement : un message écarté sur ses en-têtes n'est jamais désérialisé.
+ * Le corps doit être lu pendant le traitement du message par le listener.
+ * 
+ * @param <T>
+ * @since 
+ * @author Florian Lestic
+ */
+public class LazyJmsWrapper<T extends Object> extends JmsWrapper<T> {
+
+    private SupplierJmsException<T> decoder;
+
+    /**
+     * @param headers
+     * @param decoder
+     */
+    public LazyJmsWrapper(Map<String, Object> headers, SupplierJmsException<T> decoder) {
+        this.decoder = decoder;
+        setHeaders(headers);
+    }
+
+    /**
+     * @return true si le corps a été décodé
+     */
+    public boolean isDecoded() {
+        return decoder == null;
+    }
+
+    @Override
+    public T getObject() {
+        final SupplierJmsException<T> pending = this.decoder;
+        if (pending != null) {
+            try {
+                super.setObject(pending.get());
+            } catch (JMSException e) {
+                throw JmsUtils.convertJmsAccessException(e);
+            }
+            this.decoder = null;
+        }
+        return super.getObject();
+    }
+
+    @Override
+    public void setObject(T object) {
+        this.decoder = null;
+        super.setObject(object);
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.domain;
+
+import java.util.AbstractMap;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.springframework.jms.support.JmsUtils;
+
+/**
+ * Vue paresseuse des propriétés d'un {@link Message} : une propriété n'est lue qu'au premier accès.
+ * L'ensemble des propriétés n'est copié que lors d'une itération ou d'une modification.
+ * Cette vue n'est pas thread-safe.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class LazyMessageHeaders extends AbstractMap<String, Object> {
+
+    private final Message message;
+    private final Map<String, Object> resolved = new HashMap<>(4);
+    private Map<String, Object> materialized;
+
+    /**
+     * @param message
+     */
+    public LazyMessageHeaders(Message message) {
+        this.message = message;
+    }
+
+    @Override
+    public Object get(Object key) {
+        if (materialized != null) {
+            return materialized.get(key);
+        }
+        if (!(key instanceof String)) {
+            return null;
+        }
+        Object value = resolved.get(key);
+        if (value == null && !resolved.containsKey(key)) {
+            try {
+                value = message.getObjectProperty((String) key);
+            } catch (JMSException e) {
+                throw JmsUtils.convertJmsAccessException(e);
+            }
+            resolved.put((String) key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (materialized != null) {
+            return materialized.containsKey(key);
+        }
+        if (!(key instanceof String)) {
+            return false;
+        }
+        try {
+            return message.propertyExists((String) key);
+        } catch (JMSException e) {
+            throw JmsUtils.convertJmsAccessException(e);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        if (materialized != null) {
+            return materialized.isEmpty();
+        }
+        try {
+            return !message.getPropertyNames().hasMoreElements();
+        } catch (JMSException e) {
+            throw JmsUtils.convertJmsAccessException(e);
+        }
+    }
+
+    @Override
+    public int size() {
+        return materialize().size();
+    }
+
+    @Override
+    public Object put(String key, Object value) {
+        return materialize().put(key, value);
+    }
+
+    @Override
+    public Object remove(Object key) {
+        return materialize().remove(key);
+    }
+
+    @Override
+    public void clear() {
+        materialize().clear();
+    }
+
+    @Override
+    public Set<Entry<String, Object>> entrySet() {
+        return materialize().entrySet();
+    }
+
+    private Map<String, Object> materialize() {
+        if (materialized == null) {
+            try {
+                final Enumeration<?> enumeration = message.getPropertyNames();
+                final Map<String, Object> headers = new HashMap<>();
+                while (enumeration.hasMoreElements()) {
+                    final String name = (String) enumeration.nextElement();
+                    headers.put(name, resolved.containsKey(name) ? resolved.get(name) : message.getObjectProperty(name));
+                }
+                materialized = headers;
+            } catch (JMSException e) {
+                throw JmsUtils.convertJmsAccessException(e);
+            }
+        }
+        return materialized;
+    }
+
+}
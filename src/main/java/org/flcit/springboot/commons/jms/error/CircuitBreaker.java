@@ -0,0 +1,78 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.error;
+
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+/**
+ * Disjoncteur par catégorie d'erreur : il s'ouvre après <code>failureThreshold</code> échecs consécutifs,
+ * pour une durée issue du {@link BackOff}. Le compteur et le back-off sont réinitialisés
+ * si aucun échec ne survient pendant <code>resetTimeout</code> après le dernier échec ou la dernière refermeture.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class CircuitBreaker {
+
+    private final BackOff backOff;
+    private final int failureThreshold;
+    private final long resetTimeout;
+
+    private int failures;
+    private long lastEvent;
+    private BackOffExecution execution;
+
+    /**
+     * @param backOff
+     * @param failureThreshold
+     * @param resetTimeout
+     */
+    public CircuitBreaker(BackOff backOff, int failureThreshold, long resetTimeout) {
+        this.backOff = backOff;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.resetTimeout = resetTimeout;
+    }
+
+    /**
+     * Enregistre un échec.
+     * @param now
+     * @return la durée d'ouverture du disjoncteur en millisecondes, 0 s'il reste fermé
+     */
+    public synchronized long onFailure(long now) {
+        if (now - lastEvent > resetTimeout) {
+            failures = 0;
+            execution = null;
+        }
+        if (++failures < failureThreshold) {
+            lastEvent = Math.max(lastEvent, now);
+            return 0;
+        }
+        failures = 0;
+        if (execution == null) {
+            execution = backOff.start();
+        }
+        long delay = execution.nextBackOff();
+        if (delay == BackOffExecution.STOP) {
+            execution = backOff.start();
+            delay = execution.nextBackOff();
+        }
+        lastEvent = now + delay;
+        return delay;
+    }
+
+}
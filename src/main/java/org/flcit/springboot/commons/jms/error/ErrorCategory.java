@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.error;
+
+/**
+ * Catégories d'erreurs traitées par {@link ListenerErrorHandler}
+ * @since 
+ * @author Florian Lestic
+ */
+public enum ErrorCategory {
+
+    /**
+     * Appel à un service REST
+     */
+    REST,
+    /**
+     * Appel à un web service (SOAP)
+     */
+    WEB_SERVICE,
+    /**
+     * Transaction
+     */
+    TRANSACTION,
+    /**
+     * Opération sur la base de données
+     */
+    PERSISTENCE,
+    /**
+     * Lecture et parsing du message JMS
+     */
+    MESSAGING,
+    /**
+     * Cause non traitée ou absente
+     */
+    OTHER
+
+}
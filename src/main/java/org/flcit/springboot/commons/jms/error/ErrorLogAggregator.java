@@ -0,0 +1,119 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.error;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limitation du volume de logs d'erreur : les erreurs sont regroupées par (classe d'exception, classe de cause, source),
+ * seule la première de chaque groupe est journalisée avec sa pile d'appels sur une période,
+ * les suivantes sont comptées puis résumées par {@link #flush()}.
+ * La source est la destination du conteneur en échec, à défaut le nom du thread sans son numéro.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class ErrorLogAggregator {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ListenerErrorHandler.class);
+
+    private final ConcurrentMap<Key, AtomicLong> counts = new ConcurrentHashMap<>();
+    private final long interval;
+
+    ErrorLogAggregator(long interval) {
+        this.interval = interval;
+    }
+
+    long getInterval() {
+        return interval;
+    }
+
+    /**
+     * @param t
+     * @param source destination du conteneur en échec, null si inconnue
+     * @return true si l'erreur doit être journalisée en détail, false si elle est seulement comptée
+     */
+    boolean tryAcquire(Throwable t, String source) {
+        final Key key = new Key(t.getClass(), t.getCause() != null ? t.getCause().getClass() : null, source != null ? source : threadSource());
+        return counts.computeIfAbsent(key, k -> new AtomicLong()).getAndIncrement() == 0;
+    }
+
+    /**
+     * Journalise le résumé des erreurs non détaillées depuis le précédent appel et ouvre une nouvelle période.
+     */
+    void flush() {
+        for (Map.Entry<Key, AtomicLong> entry : counts.entrySet()) {
+            final long suppressed = entry.getValue().getAndSet(0) - 1;
+            if (suppressed > 0) {
+                final Key key = entry.getKey();
+                LOG.error("{} ERREUR(S) SIMILAIRE(S) NON DÉTAILLÉE(S) EN {} ms : {} => {} [{}]",
+                        suppressed, interval, key.exception.getName(), key.cause != null ? key.cause.getName() : null, key.source);
+            }
+        }
+    }
+
+    private static String threadSource() {
+        final String name = Thread.currentThread().getName();
+        int end = name.length();
+        while (end > 0 && Character.isDigit(name.charAt(end - 1))) {
+            end--;
+        }
+        if (end > 0 && end < name.length() && name.charAt(end - 1) == '-') {
+            end--;
+        }
+        return name.substring(0, end);
+    }
+
+    private static final class Key {
+
+        private final Class<?> exception;
+        private final Class<?> cause;
+        private final String source;
+
+        private Key(Class<?> exception, Class<?> cause, String source) {
+            this.exception = exception;
+            this.cause = cause;
+            this.source = source;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return exception == other.exception && cause == other.cause && source.equals(other.source);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(exception, cause, source);
+        }
+
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.error;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.util.backoff.BackOff;
+import org.springframework.util.backoff.BackOffExecution;
+
+/**
+ * {@link BackOff} exponentiel borné avec jitter, utilisable également avec
+ * {@link org.springframework.jms.listener.DefaultMessageListenerContainer#setBackOff(BackOff)}.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class ExponentialJitterBackOff implements BackOff {
+
+    private final long initialInterval;
+    private final double multiplier;
+    private final long maxInterval;
+    private final double jitter;
+
+    /**
+     * @param initialInterval
+     * @param multiplier
+     * @param maxInterval
+     * @param jitter ratio aléatoire appliqué à chaque délai (entre 0 et 1)
+     */
+    public ExponentialJitterBackOff(long initialInterval, double multiplier, long maxInterval, double jitter) {
+        if (initialInterval < 0 || multiplier < 1 || maxInterval < initialInterval || jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Invalid back-off configuration");
+        }
+        this.initialInterval = initialInterval;
+        this.multiplier = multiplier;
+        this.maxInterval = maxInterval;
+        this.jitter = jitter;
+    }
+
+    @Override
+    public BackOffExecution start() {
+        return new Execution();
+    }
+
+    private class Execution implements BackOffExecution {
+
+        private long currentInterval = -1;
+
+        @Override
+        public long nextBackOff() {
+            currentInterval = currentInterval < 0 ? initialInterval : Math.min((long) (currentInterval * multiplier), maxInterval);
+            if (jitter == 0 || currentInterval == 0) {
+                return currentInterval;
+            }
+            final long delta = (long) (currentInterval * jitter);
+            return Math.min(maxInterval, Math.max(0, currentInterval - delta + ThreadLocalRandom.current().nextLong(2 * delta + 1)));
+        }
+
+    }
+
+}
@@ -16,104 +16,480 @@
 
 package org.flcit.springboot.commons.jms.error;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+
 import org.flcit.commons.core.util.ClassUtils;
 import org.flcit.commons.core.util.ObjectUtils;
-import org.flcit.commons.core.util.ReflectionUtils;
-import org.flcit.commons.core.util.ThreadUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
+import org.springframework.jms.listener.AbstractMessageListenerContainer;
+import org.springframework.jms.listener.MessageListenerContainer;
+import org.springframework.jms.listener.SessionAwareMessageListener;
 import org.springframework.messaging.MessagingException;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.TransactionException;
 import org.springframework.util.ErrorHandler;
+import org.springframework.util.ReflectionUtils;
+
+import org.flcit.springboot.commons.jms.CommonsJmsProperties;
 
 /**
+ * Journalise les erreurs des listeners et applique un back-off par conteneur et par catégorie d'erreur.
+ * Au démarrage, le listener de chaque {@link AbstractMessageListenerContainer} utilisant ce gestionnaire est enveloppé,
+ * en conservant son type ({@link MessageListener} ou {@link SessionAwareMessageListener}), afin d'identifier
+ * le conteneur en échec : à l'ouverture de son disjoncteur, seul ce conteneur est arrêté puis redémarré.
+ * Pour un conteneur non identifié, l'attente est bloquante sur le seul thread en échec.
  * 
  * @since 
  * @author Florian Lestic
  */
 @Component
-public class ListenerErrorHandler implements ErrorHandler {
+public class ListenerErrorHandler implements ErrorHandler, SmartLifecycle, DisposableBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(ListenerErrorHandler.class);
 
+    private static final ClassValue<ResponseAccessor> RESPONSE_ACCESSORS = new ClassValue<ResponseAccessor>() {
+        @Override
+        protected ResponseAccessor computeValue(Class<?> type) {
+            return new ResponseAccessor(type);
+        }
+    };
+
+    private static final ThreadLocal<MessageListenerContainer> FAILING_CONTAINER = new ThreadLocal<>();
+    private static final Object UNKNOWN_CONTAINER = new Object();
+
+    private final CommonsJmsProperties.Error properties;
+    private final ConcurrentMap<Object, Map<ErrorCategory, CircuitBreaker>> circuitBreakers = new ConcurrentHashMap<>();
+    private final Supplier<Collection<MessageListenerContainer>> containers;
+    private final Set<MessageListenerContainer> paused = ConcurrentHashMap.newKeySet();
+    private final Map<MessageListenerContainer, ScheduledFuture<?>> restarts = new ConcurrentHashMap<>();
+    private volatile boolean running;
+    private final ErrorLogAggregator logAggregator;
+    private volatile boolean logSummaryScheduled;
+    private ScheduledExecutorService scheduler;
+    private ErrorMetrics errorMetrics;
+
+    /**
+     * Back-off par défaut, sans conteneur pilotable : l'attente est alors bloquante.
+     */
+    public ListenerErrorHandler() {
+        this(new CommonsJmsProperties.Error(), Collections::emptyList);
+    }
+
+    /**
+     * @param properties
+     * @param registry
+     * @param containers
+     */
+    @Autowired
+    public ListenerErrorHandler(CommonsJmsProperties properties, ObjectProvider<JmsListenerEndpointRegistry> registry, ObjectProvider<MessageListenerContainer> containers) {
+        this(properties.getError(), () -> listenerContainers(registry, containers));
+    }
+
+    /**
+     * @param properties
+     * @param containers conteneurs dont le listener est surveillé, et arrêtés individuellement à l'ouverture de leur disjoncteur
+     */
+    public ListenerErrorHandler(CommonsJmsProperties.Error properties, Supplier<Collection<MessageListenerContainer>> containers) {
+        this.properties = properties;
+        this.containers = containers;
+        this.logAggregator = properties.getLogSummaryInterval() > 0 ? new ErrorLogAggregator(properties.getLogSummaryInterval()) : null;
+    }
+
+    /**
+     * Injecté automatiquement si un bean {@link ErrorMetrics} est présent.
+     * @param errorMetrics
+     */
+    @Autowired(required = false)
+    public void setErrorMetrics(ErrorMetrics errorMetrics) {
+        this.errorMetrics = errorMetrics;
+    }
+
     @Override
     public void handleError(Throwable t) {
+        final MessageListenerContainer container = FAILING_CONTAINER.get();
+        FAILING_CONTAINER.remove();
+        final boolean log = LOG.isErrorEnabled() && acquireLog(t, container);
+        final ErrorCategory category;
         // Exception sans cause
         if (t.getCause() == null) {
-            LOG.error("EXCEPTION SANS CAUSE : " + t.getMessage(), t);
+            if (log) {
+                LOG.error("EXCEPTION SANS CAUSE : {}", t.getMessage(), t);
+            }
+            category = ErrorCategory.OTHER;
         }
         // Exception lors d'un appel à un service REST
         else if (ClassUtils.safeIsAssignableFrom("org.springframework.web.client.RestClientException", t.getCause().getClass())) {
-            catchRestClientException((Exception) t.getCause());
+            if (log) {
+                catchRestClientException((Exception) t.getCause());
+            }
+            category = ErrorCategory.REST;
         }
         // Exception lors d'un appel à un web service (SOAP)
         else if (ClassUtils.safeIsAssignableFrom("org.springframework.ws.WebServiceException", t.getCause().getClass())) {
-            catchWebServiceException((Exception) t.getCause());
+            if (log) {
+                catchWebServiceException((Exception) t.getCause());
+            }
+            category = ErrorCategory.WEB_SERVICE;
         }
         // Exception lors d'une transaction (ex: accès à la Base de données)
         else if (t.getCause() instanceof TransactionException) {
-            catchTransactionException((TransactionException) t.getCause());
+            if (log) {
+                catchTransactionException((TransactionException) t.getCause());
+            }
+            category = ErrorCategory.TRANSACTION;
         }
         // Exception lors d'une opération sur la Base de données
         else if (ClassUtils.safeIsAssignableFrom("javax.persistence.PersistenceException", t.getCause().getClass())) {
-            catchPersistenceException((Exception) t.getCause());
+            if (log) {
+                catchPersistenceException((Exception) t.getCause());
+            }
+            category = ErrorCategory.PERSISTENCE;
         }
         // Exception lors de la lecture et du parsing du message JMS
         else if(t.getCause() instanceof MessagingException) {
-            catchMessagingException((MessagingException) t.getCause());
+            if (log) {
+                catchMessagingException((MessagingException) t.getCause());
+            }
+            category = ErrorCategory.MESSAGING;
         }
         // Exception dont la cause n'est pas traitée
         else {
-            if (LOG.isErrorEnabled()) {
+            if (log) {
                 final String message = ObjectUtils.getOrDefault(t.getCause().getMessage(), t.getMessage());
-                LOG.error("CAUSE NON TRAITÉE : {} => {}" + t.getCause().getClass() + " => " + message, t.getCause());
+                LOG.error("CAUSE NON TRAITÉE : {} => {}", t.getCause().getClass(), message, t.getCause());
+            }
+            category = ErrorCategory.OTHER;
+        }
+        if (errorMetrics != null) {
+            errorMetrics.recordError(category);
+        }
+        backOff(container, category);
+    }
+
+    /**
+     * @return true si l'erreur doit être journalisée en détail
+     */
+    private boolean acquireLog(Throwable t, MessageListenerContainer container) {
+        if (logAggregator == null) {
+            return true;
+        }
+        if (!logSummaryScheduled) {
+            scheduleLogSummary();
+        }
+        return logAggregator.tryAcquire(t, getDestinationDescription(container));
+    }
+
+    /**
+     * @return la destination du conteneur, null si inconnue
+     */
+    private static String getDestinationDescription(MessageListenerContainer container) {
+        if (!(container instanceof AbstractMessageListenerContainer)) {
+            return null;
+        }
+        final AbstractMessageListenerContainer amlc = (AbstractMessageListenerContainer) container;
+        return amlc.getDestination() != null ? amlc.getDestination().toString() : amlc.getDestinationName();
+    }
+
+    private synchronized void scheduleLogSummary() {
+        if (!logSummaryScheduled) {
+            logSummaryScheduled = true;
+            getScheduler().scheduleWithFixedDelay(logAggregator::flush, logAggregator.getInterval(), logAggregator.getInterval(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * À l'ouverture du disjoncteur, le conteneur en échec est arrêté puis redémarré
+     * à l'issue du délai, sans bloquer le thread du listener.
+     */
+    private void backOff(MessageListenerContainer container, ErrorCategory category) {
+        if (container != null && paused.contains(container)) {
+            return;
+        }
+        final long delay = getCircuitBreakers(container != null ? container : UNKNOWN_CONTAINER).get(category).onFailure(System.currentTimeMillis());
+        if (delay <= 0) {
+            return;
+        }
+        if (container == null || !container.isRunning()) {
+            // Conteneur non identifié : repli sur une attente bloquante du seul thread en échec
+            sleep(delay);
+            return;
+        }
+        if (!paused.add(container)) {
+            return;
+        }
+        LOG.warn("DISJONCTEUR OUVERT ({}) : arrêt du listener {} pendant {} ms", category, container, delay);
+        // arrêt asynchrone : les threads du conteneur s'achèvent sans attente, le redémarrage est planifié à l'issue
+        container.stop(() -> scheduleRestart(container, delay));
+    }
+
+    private void scheduleRestart(MessageListenerContainer container, long delay) {
+        if (!running) {
+            paused.remove(container);
+            return;
+        }
+        restarts.put(container, getScheduler().schedule(() -> {
+            try {
+                if (running) {
+                    container.start();
+                }
+            } finally {
+                restarts.remove(container);
+                paused.remove(container);
             }
+        }, delay, TimeUnit.MILLISECONDS));
+    }
+
+    private Map<ErrorCategory, CircuitBreaker> getCircuitBreakers(Object container) {
+        return circuitBreakers.computeIfAbsent(container, c -> {
+            final Map<ErrorCategory, CircuitBreaker> breakers = new EnumMap<>(ErrorCategory.class);
+            for (ErrorCategory category : ErrorCategory.values()) {
+                final CommonsJmsProperties.BackOff backOff = properties.getBackOff(category);
+                breakers.put(category, new CircuitBreaker(
+                        new ExponentialJitterBackOff(backOff.getInitialInterval(), backOff.getMultiplier(), backOff.getMaxInterval(), backOff.getJitter()),
+                        backOff.getFailureThreshold(),
+                        backOff.getResetTimeout()));
+            }
+            return breakers;
+        });
+    }
+
+    /**
+     * Enveloppe le listener des conteneurs utilisant ce gestionnaire afin d'identifier le conteneur en échec dans {@link #handleError(Throwable)}.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public void start() {
+        for (MessageListenerContainer container : containers.get()) {
+            if (container instanceof AbstractMessageListenerContainer && ((AbstractMessageListenerContainer) container).getErrorHandler() == this) {
+                final AbstractMessageListenerContainer amlc = (AbstractMessageListenerContainer) container;
+                final Object listener = amlc.getMessageListener();
+                if (listener instanceof SessionAwareMessageListener && !(listener instanceof ContainerAwareSessionListener)) {
+                    amlc.setMessageListener(new ContainerAwareSessionListener(container, (SessionAwareMessageListener<Message>) listener));
+                } else if (listener instanceof MessageListener && !(listener instanceof ContainerAwareListener)) {
+                    amlc.setMessageListener(new ContainerAwareListener(container, (MessageListener) listener));
+                }
+            }
+        }
+        running = true;
+    }
+
+    /**
+     * Annule les redémarrages planifiés des conteneurs arrêtés par leur disjoncteur.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        for (ScheduledFuture<?> restart : restarts.values()) {
+            restart.cancel(false);
+        }
+        restarts.clear();
+        paused.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return une phase précédant celle des conteneurs de listeners, afin d'envelopper leur listener avant leur démarrage
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 1;
+    }
+
+    private synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("jms-error-backoff-");
+            threadFactory.setDaemon(true);
+            scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+        }
+        return scheduler;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private static Collection<MessageListenerContainer> listenerContainers(ObjectProvider<JmsListenerEndpointRegistry> registry, ObjectProvider<MessageListenerContainer> containers) {
+        final Set<MessageListenerContainer> result = new LinkedHashSet<>();
+        registry.ifAvailable(r -> result.addAll(r.getListenerContainers()));
+        containers.forEach(result::add);
+        return result;
+    }
+
+    private static void sleep(long delay) {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
-        ThreadUtils.sleep(30000);
     }
 
     private static final void catchMessagingException(MessagingException e) {
-        LOG.error(e.getClass() + " : " + e.getMessage(), e);
+        LOG.error("{} : {}", e.getClass(), e.getMessage(), e);
     }
 
     private static final void catchTransactionException(TransactionException e) {
-        LOG.error(e.getClass() + " : " + e.getMessage(), e);
+        LOG.error("{} : {}", e.getClass(), e.getMessage(), e);
     }
 
     private static final void catchPersistenceException(Exception e) {
-        LOG.error(e.getClass() + " : " + e.getMessage(), e);
+        LOG.error("{} : {}", e.getClass(), e.getMessage(), e);
     }
 
     private static final void catchWebServiceException(Exception e) {
         //Exception client
         if (ClassUtils.safeIsAssignableFrom("org.springframework.ws.client.WebServiceClientException", e.getClass())) {
-            LOG.error(e.getClass().getName() + " : " + e.getMessage(), e);
+            LOG.error("{} : {}", e.getClass().getName(), e.getMessage(), e);
         }
         //Exception server
         else if (ClassUtils.safeIsAssignableFrom("org.springframework.ws.WebServiceMessageException", e.getClass())) {
-            LOG.error(e.getClass().getName() + " : " + e.getMessage(), e);
+            LOG.error("{} : {}", e.getClass().getName(), e.getMessage(), e);
         }
         //Exception autre
         else {
-            LOG.error(e.getClass() + " : " + e.getMessage(), e);
+            LOG.error("{} : {}", e.getClass(), e.getMessage(), e);
         }
     }
 
     private static final void catchRestClientException(Exception e) {
         //Exception client
         if (ClassUtils.safeIsAssignableFrom("org.springframework.web.client.ResourceAccessException", e.getClass())) {
-            LOG.error(e.getClass().getName() + " : " + e.getMessage(), e);
+            LOG.error("{} : {}", e.getClass().getName(), e.getMessage(), e);
         }
         //Exception server
-        else if (LOG.isErrorEnabled()
-                && ClassUtils.safeIsAssignableFrom("org.springframework.web.client.RestClientResponseException", e.getClass())) {
-            LOG.error(e.getClass().getName() + " : " + ReflectionUtils.getFieldValue(e, "rawStatusCode") + " " + ReflectionUtils.getFieldValue(e, "statusText") + " => " + ReflectionUtils.getSafeMethodValue(e, "getResponseBodyAsString"), e);
+        else if (ClassUtils.safeIsAssignableFrom("org.springframework.web.client.RestClientResponseException", e.getClass())) {
+            final ResponseAccessor accessor = RESPONSE_ACCESSORS.get(e.getClass());
+            LOG.error("{} : {} {} => {}", e.getClass().getName(), accessor.getRawStatusCode(e), accessor.getStatusText(e), accessor.getResponseBody(e), e);
         }
         //Exception autre
         else {
-            LOG.error(e.getClass() + " : " + e.getMessage(), e);
+            LOG.error("{} : {}", e.getClass(), e.getMessage(), e);
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * Mémorise le conteneur du thread courant lorsque le listener échoue, avant l'appel de l'{@link ErrorHandler} sur ce même thread.
+     */
+    private static final class ContainerAwareListener implements MessageListener {
+
+        private final MessageListenerContainer container;
+        private final MessageListener delegate;
+
+        private ContainerAwareListener(MessageListenerContainer container, MessageListener delegate) {
+            this.container = container;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onMessage(Message message) {
+            try {
+                delegate.onMessage(message);
+            } catch (Throwable e) {
+                FAILING_CONTAINER.set(container);
+                throw e;
+            }
+        }
+
+    }
+
+    /**
+     * {@link ContainerAwareListener} d'un {@link SessionAwareMessageListener}.
+     */
+    private static final class ContainerAwareSessionListener implements SessionAwareMessageListener<Message> {
+
+        private final MessageListenerContainer container;
+        private final SessionAwareMessageListener<Message> delegate;
+
+        private ContainerAwareSessionListener(MessageListenerContainer container, SessionAwareMessageListener<Message> delegate) {
+            this.container = container;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onMessage(Message message, Session session) throws JMSException {
+            try {
+                delegate.onMessage(message, session);
+            } catch (Throwable e) {
+                FAILING_CONTAINER.set(container);
+                throw e;
+            }
+        }
+
+    }
+
+    /**
+     * Accesseurs du statut et du corps de réponse d'une RestClientResponseException, résolus une fois par classe.
+     */
+    private static final class ResponseAccessor {
+
+        private final Field rawStatusCode;
+        private final Field statusText;
+        private final Method responseBody;
+
+        private ResponseAccessor(Class<?> type) {
+            this.rawStatusCode = accessible(ReflectionUtils.findField(type, "rawStatusCode"));
+            this.statusText = accessible(ReflectionUtils.findField(type, "statusText"));
+            this.responseBody = ReflectionUtils.findMethod(type, "getResponseBodyAsString");
+            if (this.responseBody != null) {
+                ReflectionUtils.makeAccessible(this.responseBody);
+            }
+        }
+
+        private static Field accessible(Field field) {
+            if (field != null) {
+                ReflectionUtils.makeAccessible(field);
+            }
+            return field;
+        }
+
+        private Object getRawStatusCode(Object target) {
+            return rawStatusCode != null ? ReflectionUtils.getField(rawStatusCode, target) : null;
+        }
+
+        private Object getStatusText(Object target) {
+            return statusText != null ? ReflectionUtils.getField(statusText, target) : null;
+        }
+
+        private Object getResponseBody(Object target) {
+            try {
+                return responseBody != null ? ReflectionUtils.invokeMethod(responseBody, target) : null;
+            } catch (RuntimeException e) {
+                return null;
+            }
+        }
+
+    }
+
+}
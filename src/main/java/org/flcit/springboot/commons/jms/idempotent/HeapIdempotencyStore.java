@@ -0,0 +1,124 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.idempotent;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Mémoire des clés sur le tas, découpée en segments verrouillés indépendamment.
+ * Chaque clé expire après <code>timeToLive</code> millisecondes et les clés les plus anciennes sont évincées au-delà de la taille maximale.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public final class HeapIdempotencyStore implements IdempotencyStore {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+
+    /**
+     * @param maximumSize
+     * @param timeToLive en millisecondes
+     */
+    public HeapIdempotencyStore(int maximumSize, long timeToLive) {
+        final int segmentSize = Math.max(1, maximumSize / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(segmentSize, timeToLive);
+        }
+    }
+
+    @Override
+    public boolean add(String key) {
+        return segment(key).add(key, System.currentTimeMillis());
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return segment(key).containsKey(key, System.currentTimeMillis());
+    }
+
+    @Override
+    public void remove(String key) {
+        segment(key).removeKey(key);
+    }
+
+    /**
+     * @return le nombre de clés conservées, y compris celles expirées non encore évincées
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.sizeLocked();
+        }
+        return size;
+    }
+
+    private Segment segment(String key) {
+        final int h = key.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private static final class Segment extends LinkedHashMap<String, Long> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int maximumSize;
+        private final long timeToLive;
+
+        Segment(int maximumSize, long timeToLive) {
+            super(16, 0.75f, false);
+            this.maximumSize = maximumSize;
+            this.timeToLive = timeToLive;
+        }
+
+        synchronized boolean add(String key, long now) {
+            // ordre d'insertion = ordre d'expiration : les entrées expirées sont en tête
+            final Iterator<Long> expiries = values().iterator();
+            while (expiries.hasNext() && expiries.next() <= now) {
+                expiries.remove();
+            }
+            if (containsKey(key)) {
+                return false;
+            }
+            put(key, now + timeToLive);
+            return true;
+        }
+
+        synchronized boolean containsKey(String key, long now) {
+            final Long expiry = get(key);
+            return expiry != null && expiry > now;
+        }
+
+        synchronized void removeKey(String key) {
+            remove(key);
+        }
+
+        synchronized int sizeLocked() {
+            return size();
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+            return size() > maximumSize;
+        }
+
+    }
+
+}
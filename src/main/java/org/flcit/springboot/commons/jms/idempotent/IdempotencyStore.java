@@ -0,0 +1,45 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.idempotent;
+
+/**
+ * Mémoire bornée des clés de messages déjà reçus.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public interface IdempotencyStore {
+
+    /**
+     * @param key
+     * @return false si la clé est déjà présente (doublon), true si elle vient d'être ajoutée
+     */
+    boolean add(String key);
+
+    /**
+     * @param key
+     * @return true si la clé est présente et non expirée
+     */
+    boolean contains(String key);
+
+    /**
+     * Oublie la clé, afin que le message puisse être retraité après un échec.
+     * @param key
+     */
+    void remove(String key);
+
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.idempotent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.listener.SessionAwareMessageListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Filtre les messages déjà reçus avant leur conversion : la clé ({@link Message#getJMSMessageID()} ou une propriété métier)
+ * est recherchée dans un {@link IdempotencyStore} et les doublons sont acquittés sans lecture du corps.
+ * La clé est enregistrée à la validation de la transaction synchronisée (ex : <code>JmsTransactionManager</code>),
+ * sinon dès la fin sans exception du traitement, le commit ou l'acquittement restant à la charge du conteneur.
+ * Un doublon reçu pendant le traitement de la clé est rejeté en exception afin d'être relivré, et non acquitté.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class IdempotentMessageListener implements SessionAwareMessageListener<Message> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdempotentMessageListener.class);
+
+    private final SessionAwareMessageListener<Message> delegate;
+    private final IdempotencyStore store;
+    private final String keyProperty;
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param delegate
+     * @param store
+     */
+    public IdempotentMessageListener(MessageListener delegate, IdempotencyStore store) {
+        this(delegate, store, null);
+    }
+
+    /**
+     * @param delegate
+     * @param store
+     * @param keyProperty propriété portant la clé métier, null pour {@link Message#getJMSMessageID()}
+     */
+    public IdempotentMessageListener(MessageListener delegate, IdempotencyStore store, String keyProperty) {
+        this((message, session) -> delegate.onMessage(message), store, keyProperty);
+    }
+
+    /**
+     * @param delegate
+     * @param store
+     * @param keyProperty propriété portant la clé métier, null pour {@link Message#getJMSMessageID()}
+     */
+    public IdempotentMessageListener(SessionAwareMessageListener<Message> delegate, IdempotencyStore store, String keyProperty) {
+        this.delegate = delegate;
+        this.store = store;
+        this.keyProperty = keyProperty;
+    }
+
+    @Override
+    public void onMessage(Message message, Session session) throws JMSException {
+        final String key = keyProperty != null ? message.getStringProperty(keyProperty) : message.getJMSMessageID();
+        if (key == null) {
+            misses.increment();
+            delegate.onMessage(message, session);
+            return;
+        }
+        if (store.contains(key)) {
+            hits.increment();
+            if (LOG.isDebugEnabled()) {
+                LOG.debug("Message en doublon ignoré : {}", key);
+            }
+            return;
+        }
+        if (!inProgress.add(key)) {
+            throw new JMSException("Message with key " + key + " is already in progress");
+        }
+        misses.increment();
+        boolean synchronizedCompletion = false;
+        try {
+            delegate.onMessage(message, session);
+            synchronizedCompletion = complete(key);
+        } finally {
+            if (!synchronizedCompletion) {
+                inProgress.remove(key);
+            }
+        }
+    }
+
+    /**
+     * Enregistre la clé à la fin du traitement, ou à la validation de la transaction synchronisée.
+     * @return true si l'enregistrement est différé à la fin de la transaction synchronisée
+     */
+    private boolean complete(final String key) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        store.add(key);
+                    }
+                    inProgress.remove(key);
+                }
+            });
+            return true;
+        }
+        store.add(key);
+        return false;
+    }
+
+    /**
+     * @return le nombre de doublons ignorés
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return le nombre de messages transmis
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * @return la part de doublons parmi les messages reçus
+     */
+    public double getHitRate() {
+        final long h = hits.sum();
+        final long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.idempotent;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Mémoire des clés hors tas : table associative par ensembles de {@value #WAYS} emplacements dans un {@link ByteBuffer} direct,
+ * chaque emplacement conservant une empreinte 64 bits de la clé et sa date d'expiration (16 octets).
+ * L'empreinte remplaçant la clé, une collision (probabilité de l'ordre de n / 2<sup>64</sup>) est prise pour un doublon.
+ * Lorsqu'un ensemble est plein, l'entrée expirant la première est évincée.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public final class OffHeapIdempotencyStore implements IdempotencyStore {
+
+    private static final int WAYS = 8;
+    private static final int SLOT_SIZE = 16;
+    private static final int LOCKS = 64;
+
+    private final ByteBuffer table;
+    private final int sets;
+    private final long timeToLive;
+    private final Object[] locks = new Object[LOCKS];
+
+    /**
+     * @param maximumSize
+     * @param timeToLive en millisecondes
+     */
+    public OffHeapIdempotencyStore(int maximumSize, long timeToLive) {
+        int sets = 1;
+        while (sets * WAYS < maximumSize) {
+            sets <<= 1;
+        }
+        if ((long) sets * WAYS * SLOT_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Maximum size is too large : " + maximumSize);
+        }
+        this.sets = sets;
+        this.table = ByteBuffer.allocateDirect(sets * WAYS * SLOT_SIZE);
+        this.timeToLive = timeToLive;
+        for (int i = 0; i < LOCKS; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public boolean add(String key) {
+        final long hash = hash(key);
+        final int set = set(hash);
+        final int base = set * WAYS * SLOT_SIZE;
+        final long now = System.currentTimeMillis();
+        synchronized (locks[set & (LOCKS - 1)]) {
+            int victim = base;
+            long victimExpiry = Long.MAX_VALUE;
+            for (int i = 0; i < WAYS; i++) {
+                final int slot = base + i * SLOT_SIZE;
+                final long slotHash = table.getLong(slot);
+                final long expiry = table.getLong(slot + 8);
+                if (slotHash == hash && expiry > now) {
+                    return false;
+                }
+                if (expiry < victimExpiry) {
+                    victim = slot;
+                    victimExpiry = expiry;
+                }
+            }
+            table.putLong(victim, hash);
+            table.putLong(victim + 8, now + timeToLive);
+            return true;
+        }
+    }
+
+    @Override
+    public boolean contains(String key) {
+        final long hash = hash(key);
+        final int set = set(hash);
+        final int base = set * WAYS * SLOT_SIZE;
+        final long now = System.currentTimeMillis();
+        synchronized (locks[set & (LOCKS - 1)]) {
+            for (int i = 0; i < WAYS; i++) {
+                final int slot = base + i * SLOT_SIZE;
+                if (table.getLong(slot) == hash && table.getLong(slot + 8) > now) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        final long hash = hash(key);
+        final int set = set(hash);
+        final int base = set * WAYS * SLOT_SIZE;
+        synchronized (locks[set & (LOCKS - 1)]) {
+            for (int i = 0; i < WAYS; i++) {
+                final int slot = base + i * SLOT_SIZE;
+                if (table.getLong(slot) == hash) {
+                    table.putLong(slot, 0L);
+                    table.putLong(slot + 8, 0L);
+                }
+            }
+        }
+    }
+
+    private int set(long hash) {
+        return (int) (hash ^ (hash >>> 32)) & (sets - 1);
+    }
+
+    /**
+     * FNV-1a 64 bits suivi d'un mélange final, 0 étant réservé aux emplacements libres.
+     */
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h != 0 ? h : 1;
+    }
+
+}
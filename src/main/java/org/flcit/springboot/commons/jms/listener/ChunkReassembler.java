@@ -0,0 +1,217 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.listener;
+
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.StreamMessage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.support.JmsUtils;
+
+import org.flcit.springboot.commons.jms.functional.ConsumerJmsException;
+import org.flcit.springboot.commons.jms.streaming.ChunkHeaders;
+import org.flcit.springboot.commons.jms.streaming.ChunkedInputStream;
+import org.flcit.springboot.commons.jms.streaming.InputStreamMessage;
+
+/**
+ * Listener réassemblant les flux découpés par {@link org.flcit.springboot.commons.jms.template.BaseJmsTemplate#sendChunked(InputStream, int)}.
+ * Chaque flux est traité par le <code>handler</code> sur l'<code>executor</code> pendant que le thread du listener
+ * lui transmet les messages suivants, avec au plus <code>maxBufferedChunks</code> messages en attente.
+ * Un message est acquitté dès sa transmission au flux, le dernier message du flux à l'issue du traitement seulement.
+ * En cas d'échec du traitement, le dernier message est rejeté en exception une seule fois, l'échec étant ainsi remonté au conteneur.
+ * Les identifiants des flux terminés ou en échec sont conservés (au plus <code>maxTracked</code>) : les messages orphelins
+ * (relivraisons, messages suivant un échec ou d'un flux dont le premier message est inconnu) sont alors écartés une seule fois,
+ * avec une trace d'erreur, plutôt que relivrés en boucle.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class ChunkReassembler implements MessageListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChunkReassembler.class);
+
+    /**
+     * Nombre maximal par défaut de flux terminés suivis
+     */
+    public static final int DEFAULT_MAX_TRACKED = 10000;
+
+    private final ConsumerJmsException<InputStream> handler;
+    private final Executor executor;
+    private final int maxBufferedChunks;
+    private final long timeout;
+    private final Map<String, Group> groups = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> closedGroups;
+
+    /**
+     * @param handler
+     * @param executor
+     * @param maxBufferedChunks
+     * @param timeout
+     */
+    public ChunkReassembler(ConsumerJmsException<InputStream> handler, Executor executor, int maxBufferedChunks, long timeout) {
+        this(handler, executor, maxBufferedChunks, timeout, DEFAULT_MAX_TRACKED);
+    }
+
+    /**
+     * @param handler
+     * @param executor
+     * @param maxBufferedChunks
+     * @param timeout
+     * @param maxTracked nombre maximal de flux terminés suivis
+     */
+    public ChunkReassembler(ConsumerJmsException<InputStream> handler, Executor executor, int maxBufferedChunks, long timeout, int maxTracked) {
+        this.handler = handler;
+        this.executor = executor;
+        this.maxBufferedChunks = maxBufferedChunks;
+        this.timeout = timeout;
+        this.closedGroups = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > maxTracked;
+            }
+        };
+    }
+
+    @Override
+    public void onMessage(Message message) {
+        try {
+            doOnMessage(message);
+        } catch (JMSException e) {
+            throw JmsUtils.convertJmsAccessException(e);
+        }
+    }
+
+    private void doOnMessage(Message message) throws JMSException {
+        if (!(message instanceof StreamMessage)) {
+            throw new IllegalStateException("Message type is not supported : " + message.getClass().getName());
+        }
+        final String groupId = message.getStringProperty(ChunkHeaders.GROUP_ID);
+        // Message non découpé
+        if (groupId == null) {
+            try (InputStreamMessage is = new InputStreamMessage((StreamMessage) message)) {
+                handler.accept(is);
+            }
+            return;
+        }
+        final boolean last = message.getBooleanProperty(ChunkHeaders.LAST_CHUNK);
+        Group group = groups.get(groupId);
+        if (group == null) {
+            final int sequence = message.getIntProperty(ChunkHeaders.GROUP_SEQUENCE);
+            final Boolean completed = getClosed(groupId);
+            if (completed != null || sequence != 1) {
+                // flux terminé, en échec ou dont le début est inconnu : les messages restants sont écartés sans relivraison
+                if (completed == null) {
+                    setClosed(groupId, false);
+                }
+                discard(groupId, sequence, completed);
+                return;
+            }
+            group = start(groupId);
+        }
+        if (!group.stream.offer((StreamMessage) message) && !last) {
+            // flux clos par l'échec de son traitement
+            discard(groupId, message.getIntProperty(ChunkHeaders.GROUP_SEQUENCE), Boolean.FALSE);
+            return;
+        }
+        if (last) {
+            groups.remove(groupId, group);
+            // le dernier message n'est acquitté qu'à l'issue du traitement du flux
+            await(group.completion);
+        }
+    }
+
+    private Group start(final String groupId) {
+        final Group group = new Group(new ChunkedInputStream(maxBufferedChunks, timeout));
+        groups.put(groupId, group);
+        executor.execute(() -> {
+            Exception failure = null;
+            try {
+                handler.accept(group.stream);
+            } catch (JMSException | RuntimeException e) {
+                LOG.error("Chunked stream {} processing failed", groupId, e);
+                failure = e;
+            } finally {
+                group.stream.close();
+                setClosed(groupId, failure == null);
+                groups.remove(groupId, group);
+            }
+            if (failure == null) {
+                group.completion.complete(null);
+            } else {
+                group.completion.completeExceptionally(failure);
+            }
+        });
+        return group;
+    }
+
+    private static void discard(final String groupId, final int sequence, final Boolean completed) {
+        if (Boolean.TRUE.equals(completed)) {
+            LOG.warn("Message {} du flux terminé {} écarté", sequence, groupId);
+        } else {
+            LOG.error("Message {} du flux {} écarté, flux en échec ou incomplet", sequence, groupId);
+        }
+    }
+
+    private Boolean getClosed(final String groupId) {
+        synchronized (closedGroups) {
+            return closedGroups.get(groupId);
+        }
+    }
+
+    private void setClosed(final String groupId, final boolean completed) {
+        synchronized (closedGroups) {
+            closedGroups.put(groupId, completed);
+        }
+    }
+
+    private static void await(CompletableFuture<Void> completion) throws JMSException {
+        try {
+            completion.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JMSException("Interrupted while waiting for the chunked stream processing");
+        } catch (ExecutionException e) {
+            final JMSException jmsException = new JMSException("Chunked stream processing failed");
+            jmsException.setLinkedException(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            throw jmsException;
+        }
+    }
+
+    private static final class Group {
+
+        private final ChunkedInputStream stream;
+        private final CompletableFuture<Void> completion = new CompletableFuture<>();
+
+        private Group(ChunkedInputStream stream) {
+            this.stream = stream;
+        }
+
+    }
+
+}
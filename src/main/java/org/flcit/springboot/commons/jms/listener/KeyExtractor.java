@@ -0,0 +1,59 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.listener;
+
+import java.util.function.Function;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.flcit.springboot.commons.jms.domain.JmsWrapper;
+
+/**
+ * Extrait la clé d'ordonnancement d'un message : les messages de même clé sont traités dans leur ordre d'arrivée.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+@FunctionalInterface
+public interface KeyExtractor {
+
+    /**
+     * @param message
+     * @param object objet converti
+     * @return la clé, null pour la clé par défaut
+     * @throws JMSException
+     */
+    Object extract(Message message, Object object) throws JMSException;
+
+    /**
+     * @param name
+     * @return la valeur de la propriété du message
+     */
+    static KeyExtractor header(String name) {
+        return (message, object) -> message.getObjectProperty(name);
+    }
+
+    /**
+     * @param function
+     * @return une clé calculée sur le {@link JmsWrapper} converti
+     */
+    static KeyExtractor wrapper(Function<JmsWrapper<?>, Object> function) {
+        return (message, object) -> function.apply((JmsWrapper<?>) object);
+    }
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.listener;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jms.listener.SessionAwareMessageListener;
+import org.springframework.jms.support.converter.MessageConverter;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import org.flcit.springboot.commons.jms.functional.ConsumerJmsException;
+
+/**
+ * Listener répartissant, au sein d'un consommateur, le traitement des messages sur des files ordonnées par clé ({@link KeyExtractor}) :
+ * les messages de même clé sont traités en séquence, ceux de clés différentes en parallèle.
+ * Les files s'exécutent sur des threads virtuels à partir de Java 21, sur un pool borné sinon.
+ * L'ordre par clé n'est garanti que dans l'ordre de réception d'un même consommateur : avec des consommateurs concurrents,
+ * des messages de même clé reçus par des consommateurs différents peuvent être traités dans le désordre.
+ * <p>
+ * La répartition suppose un mode d'acquittement individuel propre au fournisseur (ex : <code>INDIVIDUAL_ACKNOWLEDGE</code> ActiveMQ).
+ * La session n'étant pas utilisable depuis plusieurs threads, les files ne font que traiter : les acquittements et la restauration
+ * de la session sont effectués par le thread du conteneur, à chaque réception, en attente d'une place parmi les
+ * <code>maxInFlight</code> messages en cours de la session, et sans message reçu avec {@link KeyedDispatchMessageListenerContainer}.
+ * <p>
+ * Au premier échec, les messages suivants de la session ne sont plus traités : une fois les traitements en cours achevés,
+ * la session est restaurée ({@link Session#recover()}) afin que le message en échec et les suivants soient relivrés dans leur ordre,
+ * puis l'échec est propagé par {@link #onMessage(Message, Session)}.
+ * <p>
+ * En mode transactionnel ou avec un mode d'acquittement standard (AUTO, CLIENT, DUPS_OK), dont l'acquittement est cumulatif,
+ * le message est traité directement par le thread du conteneur, sans répartition.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class KeyedDispatchMessageListener implements SessionAwareMessageListener<Message>, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(KeyedDispatchMessageListener.class);
+
+    private final MessageConverter messageConverter;
+    private final KeyExtractor keyExtractor;
+    private final ConsumerJmsException<Object> handler;
+    private final ExecutorService[] lanes;
+    private final int maxInFlight;
+    private final Map<Session, Dispatch> dispatches = Collections.synchronizedMap(new WeakHashMap<>());
+
+    /**
+     * @param messageConverter
+     * @param keyExtractor
+     * @param handler
+     * @param lanes nombre de files d'exécution
+     * @param maxInFlight nombre maximal de messages en cours de traitement par session
+     */
+    public KeyedDispatchMessageListener(MessageConverter messageConverter, KeyExtractor keyExtractor, ConsumerJmsException<Object> handler, int lanes, int maxInFlight) {
+        this.messageConverter = messageConverter;
+        this.keyExtractor = keyExtractor;
+        this.handler = handler;
+        this.maxInFlight = maxInFlight;
+        this.lanes = new ExecutorService[lanes];
+        final ThreadFactory threadFactory = createThreadFactory();
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = Executors.newSingleThreadExecutor(threadFactory);
+        }
+    }
+
+    @Override
+    public void onMessage(final Message message, final Session session) throws JMSException {
+        if (!isIndividualAcknowledge(session)) {
+            handler.accept(messageConverter.fromMessage(message));
+            return;
+        }
+        final Dispatch dispatch = dispatches.computeIfAbsent(session, s -> new Dispatch());
+        // un échec survenu depuis la réception précédente : le message courant est relivré avec les messages en échec
+        dispatch.complete(session, false);
+        final Object object = messageConverter.fromMessage(message);
+        final Object key = keyExtractor.extract(message, object);
+        lanes[(key == null ? 0 : key.hashCode() & Integer.MAX_VALUE) % lanes.length].execute(() -> dispatch.process(message, object));
+        dispatch.inFlight++;
+        while (dispatch.inFlight >= maxInFlight) {
+            dispatch.complete(session, true);
+        }
+    }
+
+    /**
+     * Acquitte les messages traités et restaure la session après un échec, sans message reçu :
+     * appelé par le thread du conteneur ({@link KeyedDispatchMessageListenerContainer}).
+     * @param session
+     * @throws JMSException
+     */
+    public void onIdle(final Session session) throws JMSException {
+        final Dispatch dispatch = dispatches.get(session);
+        if (dispatch != null) {
+            try {
+                dispatch.complete(session, false);
+            } catch (ProcessingException e) {
+                LOG.error("Échec du traitement d'un message, session restaurée", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Messages en cours d'une session. Les compteurs et la session ne sont manipulés que par le thread du conteneur,
+     * les files ne faisant que publier leurs résultats dans <code>results</code>.
+     */
+    private final class Dispatch {
+
+        private final BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+        private volatile boolean failed;
+        private int inFlight;
+
+        private void process(final Message message, final Object object) {
+            if (failed) {
+                // non traité ni acquitté : relivré après la restauration de la session
+                results.add(Result.SKIPPED);
+                return;
+            }
+            try {
+                handler.accept(object);
+                results.add(new Result(message, null));
+            } catch (Throwable e) {
+                failed = true;
+                results.add(new Result(message, e));
+            }
+        }
+
+        /**
+         * Acquitte les messages traités, en attendant un résultat si <code>wait</code>.
+         * Après un échec, attend la fin des traitements en cours puis restaure la session.
+         */
+        private void complete(final Session session, final boolean wait) throws JMSException {
+            Throwable failure = null;
+            Result result = wait ? take() : results.poll();
+            while (result != null) {
+                inFlight--;
+                if (result.failure != null) {
+                    failure = failure != null ? failure : result.failure;
+                } else if (result.message != null) {
+                    result.message.acknowledge();
+                }
+                result = failure != null && inFlight > 0 ? take() : results.poll();
+            }
+            if (failure != null) {
+                failed = false;
+                session.recover();
+                throw new ProcessingException(failure);
+            }
+        }
+
+        private Result take() throws JMSException {
+            try {
+                return results.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new JMSException("Interrupted while waiting for message processing");
+            }
+        }
+
+    }
+
+    private static final class Result {
+
+        private static final Result SKIPPED = new Result(null, null);
+
+        private final Message message;
+        private final Throwable failure;
+
+        private Result(Message message, Throwable failure) {
+            this.message = message;
+            this.failure = failure;
+        }
+
+    }
+
+    /**
+     * Échec de traitement propagé après restauration de la session.
+     */
+    private static final class ProcessingException extends JMSException {
+
+        private static final long serialVersionUID = 1L;
+
+        private ProcessingException(Throwable cause) {
+            super("Message processing failed, session recovered");
+            initCause(cause);
+            if (cause instanceof Exception) {
+                setLinkedException((Exception) cause);
+            }
+        }
+
+    }
+
+    private static boolean isIndividualAcknowledge(final Session session) throws JMSException {
+        if (session.getTransacted()) {
+            return false;
+        }
+        final int mode = session.getAcknowledgeMode();
+        return mode != Session.AUTO_ACKNOWLEDGE && mode != Session.CLIENT_ACKNOWLEDGE && mode != Session.DUPS_OK_ACKNOWLEDGE;
+    }
+
+    /**
+     * @return une fabrique de threads virtuels si la JVM les supporte (Java 21+), de threads démons sinon
+     */
+    private static ThreadFactory createThreadFactory() {
+        try {
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Method name = builderClass.getMethod("name", String.class, long.class);
+            final Method factory = builderClass.getMethod("factory");
+            final Object builder = name.invoke(Thread.class.getMethod("ofVirtual").invoke(null), "jms-keyed-dispatch-", 0L);
+            return (ThreadFactory) factory.invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("jms-keyed-dispatch-");
+            threadFactory.setDaemon(true);
+            return threadFactory;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        for (ExecutorService lane : lanes) {
+            lane.shutdown();
+        }
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.flcit.springboot.commons.jms.listener;
+
+import javax.jms.JMSException;
+import javax.jms.Session;
+
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+import org.springframework.jms.support.JmsUtils;
+
+/**
+ * Conteneur acquittant et restaurant, sans message reçu (à chaque délai de réception écoulé),
+ * la session d'un {@link KeyedDispatchMessageListener} : un échec est ainsi relivré même lorsque la file est inactive.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class KeyedDispatchMessageListenerContainer extends DefaultMessageListenerContainer {
+
+    private KeyedDispatchMessageListener keyedDispatchMessageListener;
+
+    /**
+     * @param keyedDispatchMessageListener
+     */
+    public void setKeyedDispatchMessageListener(KeyedDispatchMessageListener keyedDispatchMessageListener) {
+        this.keyedDispatchMessageListener = keyedDispatchMessageListener;
+        setMessageListener(keyedDispatchMessageListener);
+    }
+
+    @Override
+    protected void noMessageReceived(Object invoker, Session session) {
+        super.noMessageReceived(invoker, session);
+        if (keyedDispatchMessageListener != null) {
+            try {
+                keyedDispatchMessageListener.onIdle(session);
+            } catch (JMSException e) {
+                throw JmsUtils.convertJmsAccessException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.listener;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.listener.SessionAwareMessageListener;
+
+import org.flcit.springboot.commons.jms.converter.BaseMessageConverter;
+import org.flcit.springboot.commons.jms.functional.ConsumerJmsException;
+
+/**
+ * Listener unique routant chaque message d'après la valeur d'une propriété vers un handler typé,
+ * au travers d'une table immuable construite au démarrage. Remplace plusieurs conteneurs filtrés par sélecteur sur une même destination :
+ * le broker n'évalue plus de sélecteur et un seul conteneur consomme.
+ * Le corps est converti vers la classe de la route, les messages sans route sont transmis au handler par défaut
+ * ou, en son absence, rejetés en exception afin d'être relivrés puis orientés vers la file d'erreur (DLQ) du broker.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public final class RoutingMessageListener implements SessionAwareMessageListener<Message> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RoutingMessageListener.class);
+
+    private final BaseMessageConverter messageConverter;
+    private final String propertyName;
+    private final Map<String, Route<?>> routes;
+    private final ConsumerJmsException<Message> otherwise;
+
+    private RoutingMessageListener(Builder builder) {
+        this.messageConverter = builder.messageConverter;
+        this.propertyName = builder.propertyName;
+        this.routes = Collections.unmodifiableMap(new HashMap<>(builder.routes));
+        this.otherwise = builder.otherwise;
+    }
+
+    /**
+     * @param messageConverter
+     * @param propertyName propriété portant la clé de routage
+     * @return
+     */
+    public static Builder builder(BaseMessageConverter messageConverter, String propertyName) {
+        return new Builder(messageConverter, propertyName);
+    }
+
+    /**
+     * @return les classes cibles par clé de routage
+     */
+    public Map<String, Class<?>> getRoutes() {
+        final Map<String, Class<?>> classes = new HashMap<>(routes.size() * 2);
+        for (Map.Entry<String, Route<?>> entry : routes.entrySet()) {
+            classes.put(entry.getKey(), entry.getValue().classResult);
+        }
+        return Collections.unmodifiableMap(classes);
+    }
+
+    @Override
+    public void onMessage(Message message, Session session) throws JMSException {
+        final String key = message.getStringProperty(propertyName);
+        final Route<?> route = key != null ? routes.get(key) : null;
+        if (route != null) {
+            route.handle(messageConverter, message);
+        } else if (otherwise != null) {
+            otherwise.accept(message);
+        } else {
+            LOG.warn("Aucune route pour la valeur {} de la propriété {}, message {} rejeté", key, propertyName, message.getJMSMessageID());
+            throw new JMSException("No route for " + propertyName + " : " + key);
+        }
+    }
+
+    private static final class Route<T> {
+
+        private final Class<T> classResult;
+        private final ConsumerJmsException<T> handler;
+
+        private Route(Class<T> classResult, ConsumerJmsException<T> handler) {
+            this.classResult = classResult;
+            this.handler = handler;
+        }
+
+        private void handle(BaseMessageConverter messageConverter, Message message) throws JMSException {
+            handler.accept(messageConverter.fromMessage(message, classResult));
+        }
+
+    }
+
+    /**
+     * 
+     * @since 
+     * @author Florian Lestic
+     */
+    public static final class Builder {
+
+        private final BaseMessageConverter messageConverter;
+        private final String propertyName;
+        private final Map<String, Route<?>> routes = new HashMap<>();
+        private ConsumerJmsException<Message> otherwise;
+
+        private Builder(BaseMessageConverter messageConverter, String propertyName) {
+            this.messageConverter = messageConverter;
+            this.propertyName = propertyName;
+        }
+
+        /**
+         * @param <T>
+         * @param key valeur de la propriété de routage
+         * @param classResult
+         * @param handler
+         * @return
+         */
+        public <T> Builder route(String key, Class<T> classResult, ConsumerJmsException<T> handler) {
+            if (routes.putIfAbsent(key, new Route<>(classResult, handler)) != null) {
+                throw new IllegalStateException("Route is already registered : " + key);
+            }
+            return this;
+        }
+
+        /**
+         * @param otherwise handler des messages sans route, non converti, sans lequel ces messages sont rejetés
+         * @return
+         */
+        public Builder otherwise(ConsumerJmsException<Message> otherwise) {
+            this.otherwise = otherwise;
+            return this;
+        }
+
+        /**
+         * @return
+         */
+        public RoutingMessageListener build() {
+            return new RoutingMessageListener(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.metrics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+import javax.jms.MapMessage;
+import javax.jms.Message;
+import javax.jms.StreamMessage;
+import javax.jms.TextMessage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import org.flcit.springboot.commons.jms.converter.ConversionMetrics;
+import org.flcit.springboot.commons.jms.error.ErrorCategory;
+import org.flcit.springboot.commons.jms.error.ErrorMetrics;
+
+/**
+ * Instrumentation Micrometer des conversions et des erreurs de listener.
+ * Les meters sont créés au premier usage puis conservés par type de message et classe.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class MicrometerJmsMetrics implements ConversionMetrics, ErrorMetrics {
+
+    /**
+     * Durée des conversions
+     */
+    public static final String CONVERSION_METER = "jms.conversion";
+    /**
+     * Taille des corps de message
+     */
+    public static final String BODY_SIZE_METER = "jms.message.body.size";
+    /**
+     * Erreurs de listener
+     */
+    public static final String LISTENER_ERRORS_METER = "jms.listener.errors";
+
+    private static final String FROM_MESSAGE = "fromMessage";
+    private static final String TO_MESSAGE = "toMessage";
+
+    private final MeterRegistry registry;
+    private final Map<MessageType, ConcurrentMap<Class<?>, Timer>> fromMessageTimers = new EnumMap<>(MessageType.class);
+    private final Map<MessageType, ConcurrentMap<Class<?>, Timer>> toMessageTimers = new EnumMap<>(MessageType.class);
+    private final Map<MessageType, DistributionSummary> fromMessageSizes = new EnumMap<>(MessageType.class);
+    private final DistributionSummary toMessageSize;
+    private final Map<ErrorCategory, Counter> errors = new EnumMap<>(ErrorCategory.class);
+
+    /**
+     * @param registry
+     */
+    public MicrometerJmsMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (MessageType type : MessageType.values()) {
+            fromMessageTimers.put(type, new ConcurrentHashMap<>());
+            toMessageTimers.put(type, new ConcurrentHashMap<>());
+            fromMessageSizes.put(type, bodySize(FROM_MESSAGE, type));
+        }
+        this.toMessageSize = bodySize(TO_MESSAGE, MessageType.BYTES);
+        for (ErrorCategory category : ErrorCategory.values()) {
+            errors.put(category, Counter.builder(LISTENER_ERRORS_METER)
+                    .tag("category", category.name().toLowerCase())
+                    .register(registry));
+        }
+    }
+
+    @Override
+    public void recordFromMessage(Message message, Class<?> classResult, long durationNanos) {
+        final MessageType type = MessageType.of(message);
+        fromMessageTimers.get(type)
+            .computeIfAbsent(classResult, c -> timer(FROM_MESSAGE, type, c))
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+        final long size = bodySize(message);
+        if (size >= 0) {
+            fromMessageSizes.get(type).record(size);
+        }
+    }
+
+    @Override
+    public void recordToMessage(Message message, Object object, long bodySize, long durationNanos) {
+        final Class<?> clazz = object != null ? object.getClass() : Void.class;
+        final MessageType type = MessageType.of(message);
+        toMessageTimers.get(type)
+            .computeIfAbsent(clazz, c -> timer(TO_MESSAGE, type, c))
+            .record(durationNanos, TimeUnit.NANOSECONDS);
+        if (bodySize >= 0) {
+            toMessageSize.record(bodySize);
+        }
+    }
+
+    @Override
+    public void recordError(ErrorCategory category) {
+        errors.get(category).increment();
+    }
+
+    private Timer timer(String operation, MessageType type, Class<?> clazz) {
+        return Timer.builder(CONVERSION_METER)
+                .tag("operation", operation)
+                .tag("message.type", type.getTag())
+                .tag("target.class", clazz.getName())
+                .register(registry);
+    }
+
+    private DistributionSummary bodySize(String operation, MessageType type) {
+        return DistributionSummary.builder(BODY_SIZE_METER)
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .tag("message.type", type.getTag())
+                .register(registry);
+    }
+
+    private static long bodySize(Message message) {
+        try {
+            if (message instanceof BytesMessage) {
+                return ((BytesMessage) message).getBodyLength();
+            } else if (message instanceof TextMessage) {
+                final String text = ((TextMessage) message).getText();
+                return text != null ? text.length() : 0;
+            }
+        } catch (JMSException e) {
+            // taille non disponible
+        }
+        return -1;
+    }
+
+    private enum MessageType {
+
+        TEXT("text"), BYTES("bytes"), STREAM("stream"), MAP("map"), OTHER("other");
+
+        private final String tag;
+
+        MessageType(String tag) {
+            this.tag = tag;
+        }
+
+        String getTag() {
+            return tag;
+        }
+
+        static MessageType of(Message message) {
+            if (message instanceof TextMessage) {
+                return TEXT;
+            } else if (message instanceof BytesMessage) {
+                return BYTES;
+            } else if (message instanceof StreamMessage) {
+                return STREAM;
+            } else if (message instanceof MapMessage) {
+                return MAP;
+            }
+            return OTHER;
+        }
+
+    }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.quarantine;
+
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+/**
+ * Propriétés portées par les messages mis en quarantaine.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public final class QuarantineHeaders {
+
+    /**
+     * Cause du dernier échec
+     */
+    public static final String CAUSE = "quarantineCause";
+    /**
+     * Nombre de tentatives de traitement
+     */
+    public static final String ATTEMPTS = "quarantineAttempts";
+    /**
+     * Nom de la destination d'origine
+     */
+    public static final String ORIGINAL_DESTINATION = "quarantineOriginalDestination";
+    /**
+     * Indique si la destination d'origine est un topic
+     */
+    public static final String ORIGINAL_PUB_SUB = "quarantineOriginalPubSub";
+    /**
+     * Identifiant du message d'origine
+     */
+    public static final String ORIGINAL_MESSAGE_ID = "quarantineOriginalMessageId";
+    /**
+     * Date de mise en quarantaine
+     */
+    public static final String TIMESTAMP = "quarantineTimestamp";
+
+    private static final String PREFIX = "quarantine";
+    private static final String JMSX_PREFIX = "JMSX";
+    private static final String JMSX_GROUP_ID = "JMSXGroupID";
+    private static final String JMSX_GROUP_SEQ = "JMSXGroupSeq";
+
+    private QuarantineHeaders() { }
+
+    /**
+     * Réécrit les propriétés d'un message reçu (en lecture seule) pour pouvoir le renvoyer sans toucher à son corps :
+     * les propriétés de quarantaine et celles positionnées par le fournisseur sont retirées, puis <code>extra</code> est ajouté.
+     * @param message
+     * @param extra
+     * @throws JMSException
+     */
+    static void rewriteProperties(Message message, Map<String, Object> extra) throws JMSException {
+        final Map<String, Object> properties = new LinkedHashMap<>();
+        final Enumeration<?> names = message.getPropertyNames();
+        while (names.hasMoreElements()) {
+            final String name = (String) names.nextElement();
+            if (!name.startsWith(PREFIX) && (!name.startsWith(JMSX_PREFIX) || JMSX_GROUP_ID.equals(name) || JMSX_GROUP_SEQ.equals(name))) {
+                properties.put(name, message.getObjectProperty(name));
+            }
+        }
+        properties.putAll(extra);
+        message.clearProperties();
+        for (Map.Entry<String, Object> entry : properties.entrySet()) {
+            message.setObjectProperty(entry.getKey(), entry.getValue());
+        }
+    }
+
+}
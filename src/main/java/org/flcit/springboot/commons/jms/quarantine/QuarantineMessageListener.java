@@ -0,0 +1,188 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.quarantine;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageListener;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.Topic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.listener.SessionAwareMessageListener;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.destination.DestinationResolver;
+import org.springframework.jms.support.destination.DynamicDestinationResolver;
+
+/**
+ * Met en quarantaine les messages en échec répété : chaque échec est propagé afin que le travail partiel du traitement soit annulé,
+ * puis la relivraison suivant la <code>maxAttempts</code>-ième tentative est renvoyée telle quelle (corps non reconverti),
+ * sans appel du traitement, vers la destination de quarantaine avec les propriétés de {@link QuarantineHeaders}, et acquittée.
+ * Le nombre de tentatives provient de <code>JMSXDeliveryCount</code> s'il est fourni,
+ * d'un compteur mémoire borné indexé par <code>JMSMessageID</code> sinon.
+ * Ce suivi mémoire conserve aussi la dernière exception du traitement (classe et message), reportée dans {@link QuarantineHeaders#CAUSE}.
+ * En session transactionnelle, l'envoi en quarantaine et l'acquittement sont validés ensemble.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class QuarantineMessageListener implements SessionAwareMessageListener<Message> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuarantineMessageListener.class);
+
+    /**
+     * Nombre maximal par défaut de messages suivis par le compteur mémoire
+     */
+    public static final int DEFAULT_MAX_TRACKED = 10000;
+
+    private static final String DELIVERY_COUNT = "JMSXDeliveryCount";
+    private static final String MAX_ATTEMPTS_EXCEEDED = "Max delivery attempts exceeded";
+
+    private final SessionAwareMessageListener<Message> delegate;
+    private final String quarantineDestination;
+    private final int maxAttempts;
+    private final Map<String, Failure> failures;
+    private DestinationResolver destinationResolver = new DynamicDestinationResolver();
+
+    /**
+     * @param delegate
+     * @param quarantineDestination nom de la file de quarantaine
+     * @param maxAttempts
+     */
+    public QuarantineMessageListener(MessageListener delegate, String quarantineDestination, int maxAttempts) {
+        this((message, session) -> delegate.onMessage(message), quarantineDestination, maxAttempts, DEFAULT_MAX_TRACKED);
+    }
+
+    /**
+     * @param delegate
+     * @param quarantineDestination nom de la file de quarantaine
+     * @param maxAttempts
+     * @param maxTracked nombre maximal de messages suivis par le compteur mémoire
+     */
+    public QuarantineMessageListener(SessionAwareMessageListener<Message> delegate, String quarantineDestination, int maxAttempts, int maxTracked) {
+        this.delegate = delegate;
+        this.quarantineDestination = quarantineDestination;
+        this.maxAttempts = maxAttempts;
+        this.failures = new LinkedHashMap<String, Failure>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Failure> eldest) {
+                return size() > maxTracked;
+            }
+        };
+    }
+
+    /**
+     * @param destinationResolver
+     */
+    public void setDestinationResolver(DestinationResolver destinationResolver) {
+        this.destinationResolver = destinationResolver;
+    }
+
+    @Override
+    public void onMessage(Message message, Session session) throws JMSException {
+        final boolean deliveryCount = message.propertyExists(DELIVERY_COUNT);
+        final String messageId = message.getJMSMessageID();
+        final Failure failure = getFailure(messageId);
+        final int previousFailures;
+        if (deliveryCount) {
+            previousFailures = message.getIntProperty(DELIVERY_COUNT) - 1;
+        } else {
+            previousFailures = failure != null ? failure.count : 0;
+        }
+        if (previousFailures >= maxAttempts) {
+            quarantine(message, session, previousFailures, failure != null && failure.cause != null ? failure.cause : MAX_ATTEMPTS_EXCEEDED);
+            setFailure(messageId, null);
+            return;
+        }
+        try {
+            delegate.onMessage(message, session);
+            setFailure(messageId, null);
+        } catch (JMSException | RuntimeException e) {
+            // toujours propagée : la quarantaine intervient à la relivraison, sans valider le travail partiel du traitement
+            setFailure(messageId, new Failure(previousFailures + 1, e.getClass().getName() + ": " + e.getMessage()));
+            throw e;
+        }
+    }
+
+    private void quarantine(final Message message, final Session session, final int attempts, final String cause) throws JMSException {
+        final Destination original = message.getJMSDestination();
+        final Map<String, Object> extra = new HashMap<>(8);
+        extra.put(QuarantineHeaders.CAUSE, cause);
+        extra.put(QuarantineHeaders.ATTEMPTS, attempts);
+        extra.put(QuarantineHeaders.ORIGINAL_MESSAGE_ID, message.getJMSMessageID());
+        extra.put(QuarantineHeaders.TIMESTAMP, System.currentTimeMillis());
+        if (original instanceof Queue) {
+            extra.put(QuarantineHeaders.ORIGINAL_DESTINATION, ((Queue) original).getQueueName());
+            extra.put(QuarantineHeaders.ORIGINAL_PUB_SUB, false);
+        } else if (original instanceof Topic) {
+            extra.put(QuarantineHeaders.ORIGINAL_DESTINATION, ((Topic) original).getTopicName());
+            extra.put(QuarantineHeaders.ORIGINAL_PUB_SUB, true);
+        }
+        QuarantineHeaders.rewriteProperties(message, extra);
+        final MessageProducer producer = session.createProducer(destinationResolver.resolveDestinationName(session, quarantineDestination, false));
+        try {
+            producer.send(message, message.getJMSDeliveryMode(), message.getJMSPriority(), Message.DEFAULT_TIME_TO_LIVE);
+        } finally {
+            JmsUtils.closeMessageProducer(producer);
+        }
+        LOG.warn("Message {} mis en quarantaine dans {} après {} tentative(s) : {}", extra.get(QuarantineHeaders.ORIGINAL_MESSAGE_ID), quarantineDestination, attempts, cause);
+    }
+
+    private Failure getFailure(final String messageId) {
+        if (messageId == null) {
+            return null;
+        }
+        synchronized (failures) {
+            return failures.get(messageId);
+        }
+    }
+
+    private void setFailure(final String messageId, final Failure failure) {
+        if (messageId == null) {
+            return;
+        }
+        synchronized (failures) {
+            if (failure == null) {
+                failures.remove(messageId);
+            } else {
+                failures.put(messageId, failure);
+            }
+        }
+    }
+
+    private static final class Failure {
+
+        private final int count;
+        private final String cause;
+
+        private Failure(int count, String cause) {
+            this.count = count;
+            this.cause = cause;
+        }
+
+    }
+
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.quarantine;
+
+import java.util.Collections;
+
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.support.JmsUtils;
+
+/**
+ * Réinjecte en masse les messages d'une file de quarantaine vers leur destination d'origine,
+ * après retrait des propriétés de {@link QuarantineHeaders}.
+ * Le template doit être en session transactionnelle ({@link JmsTemplate#setSessionTransacted(boolean)}) afin qu'un message ne soit
+ * retiré de la quarantaine qu'une fois renvoyé : le commit intervient tous les <code>commitSize</code> messages.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class QuarantineReplayer {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuarantineReplayer.class);
+
+    /**
+     * Nombre de messages par défaut entre deux commits
+     */
+    public static final int DEFAULT_COMMIT_SIZE = 100;
+    /**
+     * Délai d'attente par défaut (en millisecondes) d'un message de la file de quarantaine
+     */
+    public static final long DEFAULT_RECEIVE_TIMEOUT = 1000;
+
+    private final JmsTemplate jmsTemplate;
+    private int commitSize = DEFAULT_COMMIT_SIZE;
+    private long receiveTimeout = DEFAULT_RECEIVE_TIMEOUT;
+
+    /**
+     * @param jmsTemplate template en session transactionnelle
+     */
+    public QuarantineReplayer(JmsTemplate jmsTemplate) {
+        if (!jmsTemplate.isSessionTransacted()) {
+            throw new IllegalArgumentException("JmsTemplate must use transacted sessions");
+        }
+        this.jmsTemplate = jmsTemplate;
+    }
+
+    /**
+     * @param commitSize
+     */
+    public void setCommitSize(int commitSize) {
+        this.commitSize = commitSize;
+    }
+
+    /**
+     * @param receiveTimeout
+     */
+    public void setReceiveTimeout(long receiveTimeout) {
+        this.receiveTimeout = receiveTimeout;
+    }
+
+    /**
+     * @param quarantineDestination
+     * @return le nombre de messages réinjectés
+     */
+    public int replay(final String quarantineDestination) {
+        return replay(quarantineDestination, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param quarantineDestination
+     * @param maxMessages
+     * @return le nombre de messages réinjectés
+     */
+    public int replay(final String quarantineDestination, final int maxMessages) {
+        final Integer count = jmsTemplate.execute(session -> doReplay(session, quarantineDestination, maxMessages), true);
+        return count != null ? count : 0;
+    }
+
+    private int doReplay(final Session session, final String quarantineDestination, final int maxMessages) throws JMSException {
+        if (!session.getTransacted()) {
+            // sans transaction, la réception acquitterait le message avant son renvoi
+            throw new IllegalStateException("Quarantine replay requires a transacted session");
+        }
+        final MessageConsumer consumer = session.createConsumer(jmsTemplate.getDestinationResolver().resolveDestinationName(session, quarantineDestination, false));
+        final MessageProducer producer = session.createProducer(null);
+        int count = 0;
+        int pending = 0;
+        try {
+            Message message;
+            while (count < maxMessages && (message = consumer.receive(receiveTimeout)) != null) {
+                final String destinationName = message.getStringProperty(QuarantineHeaders.ORIGINAL_DESTINATION);
+                if (destinationName == null) {
+                    throw new IllegalStateException("Message has no original destination : " + message.getJMSMessageID());
+                }
+                final Destination destination = jmsTemplate.getDestinationResolver()
+                        .resolveDestinationName(session, destinationName, message.getBooleanProperty(QuarantineHeaders.ORIGINAL_PUB_SUB));
+                QuarantineHeaders.rewriteProperties(message, Collections.emptyMap());
+                producer.send(destination, message, message.getJMSDeliveryMode(), message.getJMSPriority(), Message.DEFAULT_TIME_TO_LIVE);
+                count++;
+                if (++pending >= commitSize) {
+                    JmsUtils.commitIfNecessary(session);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                JmsUtils.commitIfNecessary(session);
+            }
+        } finally {
+            JmsUtils.closeMessageProducer(producer);
+            JmsUtils.closeMessageConsumer(consumer);
+        }
+        LOG.info("{} message(s) réinjecté(s) depuis {}", count, quarantineDestination);
+        return count;
+    }
+
+}
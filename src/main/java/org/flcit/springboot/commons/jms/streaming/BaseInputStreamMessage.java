@@ -0,0 +1,181 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public abstract class BaseInputStreamMessage extends InputStream implements AutoCloseable {
+
+    /**
+     * Taille par défaut du buffer interne
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+
+    protected BaseInputStreamMessage(int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be greater than 0");
+        }
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Lit au plus <code>len</code> octets du corps du message dans <code>b</code> à partir de l'index 0.
+     * @param b
+     * @param len
+     * @return le nombre d'octets lus ou -1 en fin de message
+     * @throws IOException
+     */
+    protected abstract int readMessage(byte[] b, int len) throws IOException;
+
+    /**
+     * @throws IOException
+     */
+    protected abstract void resetMessage() throws IOException;
+
+    /**
+     * @param b
+     * @param len
+     * @return true si {@link #readMessage(byte[], int)} peut lire directement dans le tableau de l'appelant
+     */
+    protected boolean isDirectReadable(byte[] b, int len) {
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (position >= limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        }
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        } else if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return 0;
+        }
+        final int buffered = limit - position;
+        if (buffered > 0) {
+            final int n = Math.min(buffered, len);
+            System.arraycopy(buffer, position, b, off, n);
+            position += n;
+            return n;
+        }
+        // Les API JMS ne permettent pas de lire à un offset :
+        // lecture directe dans le tableau de l'appelant uniquement à partir de l'index 0
+        if (off == 0 && len >= buffer.length && isDirectReadable(b, len)) {
+            return readMessage(b, len);
+        }
+        if (!fill()) {
+            return -1;
+        }
+        final int n = Math.min(limit, len);
+        System.arraycopy(buffer, 0, b, off, n);
+        position = n;
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long remaining = n;
+        while (remaining > 0) {
+            if (position >= limit && !fill()) {
+                break;
+            }
+            final int skipped = (int) Math.min(limit - position, remaining);
+            position += skipped;
+            remaining -= skipped;
+        }
+        return n - remaining;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return limit - position;
+    }
+
+    /**
+     * Copie l'intégralité du contenu restant du message dans le flux de sortie en réutilisant le buffer interne.
+     * @param out
+     * @return le nombre d'octets copiés
+     * @throws IOException
+     */
+    public long transferTo(OutputStream out) throws IOException {
+        if (out == null) {
+            throw new NullPointerException();
+        }
+        long transferred = 0;
+        while (position < limit || fill()) {
+            final int n = limit - position;
+            out.write(buffer, position, n);
+            position = limit;
+            transferred += n;
+        }
+        return transferred;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        resetMessage();
+        position = 0;
+        limit = 0;
+    }
+
+    @Override
+    public void close() {
+        try {
+            super.close();
+        } catch (IOException e) {
+            // DO NOTHING
+        }
+    }
+
+    private boolean fill() throws IOException {
+        position = 0;
+        limit = 0;
+        final int n = readMessage(buffer, buffer.length);
+        if (n < 0) {
+            return false;
+        }
+        limit = n;
+        return true;
+    }
+
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.streaming;
+
+/**
+ * Propriétés portées par les messages d'un flux découpé en plusieurs messages.
+ * Les identifiants de groupe JMS garantissent la réception ordonnée par un seul consommateur.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public final class ChunkHeaders {
+
+    /**
+     * Identifiant du flux (groupe de messages JMS)
+     */
+    public static final String GROUP_ID = "JMSXGroupID";
+    /**
+     * Numéro de séquence du message dans le flux, à partir de 1
+     */
+    public static final String GROUP_SEQUENCE = "JMSXGroupSeq";
+    /**
+     * Indique le dernier message du flux
+     */
+    public static final String LAST_CHUNK = "chunkLast";
+
+    private ChunkHeaders() { }
+
+}
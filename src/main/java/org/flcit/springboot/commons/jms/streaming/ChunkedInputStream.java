@@ -0,0 +1,145 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.streaming;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.jms.JMSException;
+import javax.jms.StreamMessage;
+
+/**
+ * Flux réassemblé à partir des messages d'un flux découpé (voir {@link ChunkHeaders}).
+ * Les messages sont fournis par {@link #offer(StreamMessage)} et lus au fil de l'eau au travers de {@link InputStreamMessage},
+ * au plus <code>maxBufferedChunks</code> messages sont conservés en attente de lecture.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class ChunkedInputStream extends InputStream implements AutoCloseable {
+
+    private final BlockingQueue<StreamMessage> chunks;
+    private final long timeout;
+    private InputStreamMessage current;
+    private boolean last;
+    private int sequence;
+    private volatile boolean closed;
+
+    /**
+     * @param maxBufferedChunks
+     * @param timeout délai d'attente maximal (en millisecondes) d'un message par le lecteur ou d'une place libre par le producteur
+     */
+    public ChunkedInputStream(int maxBufferedChunks, long timeout) {
+        this.chunks = new ArrayBlockingQueue<>(maxBufferedChunks);
+        this.timeout = timeout;
+    }
+
+    /**
+     * Ajoute le message suivant du flux, en attendant qu'une place se libère.
+     * @param message
+     * @return false si le flux a été fermé par le lecteur
+     * @throws JMSException
+     */
+    public boolean offer(StreamMessage message) throws JMSException {
+        if (closed) {
+            return false;
+        }
+        try {
+            if (!chunks.offer(message, timeout, TimeUnit.MILLISECONDS)) {
+                throw new JMSException("Timeout waiting for the chunk reader");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new JMSException("Interrupted while waiting for the chunk reader");
+        }
+        return !closed;
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (current != null || nextChunk()) {
+            final int b = current.read();
+            if (b != -1) {
+                return b;
+            }
+            current = null;
+        }
+        return -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        } else if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return 0;
+        }
+        while (current != null || nextChunk()) {
+            final int n = current.read(b, off, len);
+            if (n != -1) {
+                return n;
+            }
+            current = null;
+        }
+        return -1;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current != null ? current.available() : 0;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        chunks.clear();
+        current = null;
+    }
+
+    private boolean nextChunk() throws IOException {
+        if (last || closed) {
+            return false;
+        }
+        final StreamMessage message;
+        try {
+            message = chunks.poll(timeout, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (message == null) {
+            throw new IOException("Timeout waiting for chunk " + (sequence + 1));
+        }
+        try {
+            final int messageSequence = message.getIntProperty(ChunkHeaders.GROUP_SEQUENCE);
+            if (messageSequence != sequence + 1) {
+                throw new IOException("Unexpected chunk sequence : " + messageSequence + " (expected " + (sequence + 1) + ")");
+            }
+            sequence = messageSequence;
+            last = message.getBooleanProperty(ChunkHeaders.LAST_CHUNK);
+        } catch (JMSException e) { throw new IOException(e); }
+        current = new InputStreamMessage(message);
+        return true;
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.streaming;
+
+import java.io.IOException;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+
+/**
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class InputStreamBytesMessage extends BaseInputStreamMessage {
+
+    private final BytesMessage bytesMessage;
+
+    /**
+     * @param bytesMessage
+     */
+    public InputStreamBytesMessage(BytesMessage bytesMessage) {
+        this(bytesMessage, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bytesMessage
+     * @param bufferSize
+     */
+    public InputStreamBytesMessage(BytesMessage bytesMessage, int bufferSize) {
+        super(bufferSize);
+        this.bytesMessage = bytesMessage;
+    }
+
+    @Override
+    protected int readMessage(byte[] b, int len) throws IOException {
+        try {
+            return bytesMessage.readBytes(b, len);
+        } catch (JMSException e) { throw new IOException(e); }
+    }
+
+    @Override
+    protected void resetMessage() throws IOException {
+        try {
+            bytesMessage.reset();
+        } catch (JMSException e) { throw new IOException(e); }
+    }
+
+}
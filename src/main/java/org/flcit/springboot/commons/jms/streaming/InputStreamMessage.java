@@ -17,79 +17,112 @@
 package org.flcit.springboot.commons.jms.streaming;
 
 import java.io.IOException;
-import java.io.InputStream;
+import java.util.zip.CRC32;
 
 import javax.jms.JMSException;
 import javax.jms.MessageEOFException;
 import javax.jms.StreamMessage;
 
 /**
+ * Flux de lecture du corps d'un {@link StreamMessage}. Si le message porte les propriétés
+ * {@value OutputStreamMessage#STREAM_LENGTH_PROPERTY} et {@value OutputStreamMessage#STREAM_CRC_PROPERTY},
+ * le nombre d'octets et le CRC32 lus sont vérifiés en fin de message.
  * 
  * @since 
  * @author Florian Lestic
  */
-public class InputStreamMessage extends InputStream implements AutoCloseable {
+public class InputStreamMessage extends BaseInputStreamMessage {
 
     private final StreamMessage streamMessage;
+    private boolean eof;
+    private boolean trailerRead;
+    private Long expectedLength;
+    private Long expectedCrc;
+    private CRC32 crc;
+    private long length;
 
     /**
      * @param streamMessage
      */
     public InputStreamMessage(StreamMessage streamMessage) {
+        this(streamMessage, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param streamMessage
+     * @param bufferSize
+     */
+    public InputStreamMessage(StreamMessage streamMessage, int bufferSize) {
+        super(bufferSize);
         this.streamMessage = streamMessage;
     }
 
+    /**
+     * {@link StreamMessage#readBytes(byte[])} remplit toujours le tableau à partir de l'index 0 et sur toute sa longueur.
+     */
+    @Override
+    protected boolean isDirectReadable(byte[] b, int len) {
+        return len == b.length;
+    }
+
+    /**
+     * Un retour de -1 par {@link StreamMessage#readBytes(byte[])} marque la fin du champ courant
+     * et non la fin du message : la lecture continue sur le champ suivant jusqu'à {@link MessageEOFException}.
+     */
     @Override
-    public int read() throws IOException {
-        byte[] bytes = new byte[1];
-        if (read(bytes) != -1) {
-            return bytes[0] & 0xFF;
-        } else {
+    protected int readMessage(byte[] b, int len) throws IOException {
+        if (eof) {
             return -1;
         }
+        try {
+            if (!trailerRead) {
+                readTrailer();
+            }
+            int n;
+            do {
+                n = streamMessage.readBytes(b);
+            } while (n <= 0);
+            length += n;
+            if (crc != null) {
+                crc.update(b, 0, n);
+            }
+            return n;
+        } catch (MessageEOFException e) {
+            eof = true;
+            verify();
+            return -1;
+        } catch (JMSException e) { throw new IOException(e); }
     }
 
-    @Override
-    public int read(byte[] b, int off, int len) throws IOException {
-        if (b == null) {
-            throw new NullPointerException();
-        } else if (off < 0 || len < 0 || len > b.length - off) {
-            throw new IndexOutOfBoundsException();
-        } else if (len == 0) {
-            return 0;
+    private void readTrailer() throws JMSException {
+        trailerRead = true;
+        if (streamMessage.propertyExists(OutputStreamMessage.STREAM_LENGTH_PROPERTY)) {
+            expectedLength = streamMessage.getLongProperty(OutputStreamMessage.STREAM_LENGTH_PROPERTY);
         }
-        byte[] buff = new byte[len];
-        int i = read(buff);
-        if (i > 0) {
-            System.arraycopy(buff, 0, b, off, i);
+        if (streamMessage.propertyExists(OutputStreamMessage.STREAM_CRC_PROPERTY)) {
+            expectedCrc = streamMessage.getLongProperty(OutputStreamMessage.STREAM_CRC_PROPERTY);
+            crc = new CRC32();
         }
-        return i;
     }
 
-    @Override
-    public int read(byte[] b) throws IOException {
-        if (b == null) {
-            throw new NullPointerException();
+    private void verify() throws IOException {
+        if (expectedLength != null && expectedLength != length) {
+            throw new IOException("Stream length mismatch : expected " + expectedLength + " bytes, read " + length);
+        }
+        if (expectedCrc != null && expectedCrc != crc.getValue()) {
+            throw new IOException("Stream CRC32 mismatch");
         }
-        try {
-            return streamMessage.readBytes(b);
-        } catch (MessageEOFException e) { return -1; }
-        catch (JMSException e) { throw new IOException(e); }
     }
 
     @Override
-    public synchronized void reset() throws IOException {
+    protected void resetMessage() throws IOException {
         try {
             streamMessage.reset();
         } catch (JMSException e) { throw new IOException(e); }
-    }
-
-    @Override
-    public void close() {
-        try {
-            super.close();
-        } catch (IOException e) {
-            // DO NOTHING
+        eof = false;
+        length = 0;
+        if (crc != null) {
+            crc.reset();
         }
     }
 
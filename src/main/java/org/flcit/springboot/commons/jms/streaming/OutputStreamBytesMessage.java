@@ -0,0 +1,142 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.streaming;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.jms.BytesMessage;
+import javax.jms.JMSException;
+
+/**
+ * Écrit directement dans le corps d'un {@link BytesMessage} au travers d'un buffer réutilisé par thread.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class OutputStreamBytesMessage extends OutputStream implements AutoCloseable {
+
+    /**
+     * Taille du buffer
+     */
+    public static final int BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<>();
+
+    private final BytesMessage bytesMessage;
+    private byte[] buffer;
+    private int count;
+    private long size;
+
+    /**
+     * @param bytesMessage
+     */
+    public OutputStreamBytesMessage(BytesMessage bytesMessage) {
+        this.bytesMessage = bytesMessage;
+        this.buffer = acquire();
+    }
+
+    /**
+     * @return le nombre d'octets écrits
+     */
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        ensureOpen();
+        if (count >= buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        } else if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureOpen();
+        if (len >= buffer.length) {
+            flushBuffer();
+            writeMessage(b, off, len);
+        } else {
+            if (len > buffer.length - count) {
+                flushBuffer();
+            }
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+        size += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        flushBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            flushBuffer();
+        } finally {
+            release(buffer);
+            buffer = null;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (buffer == null) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            writeMessage(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    private void writeMessage(byte[] b, int off, int len) throws IOException {
+        try {
+            bytesMessage.writeBytes(b, off, len);
+        } catch (JMSException e) { throw new IOException(e); }
+    }
+
+    private static byte[] acquire() {
+        final byte[] b = BUFFERS.get();
+        if (b == null) {
+            return new byte[BUFFER_SIZE];
+        }
+        BUFFERS.remove();
+        return b;
+    }
+
+    private static void release(byte[] b) {
+        BUFFERS.set(b);
+    }
+
+}
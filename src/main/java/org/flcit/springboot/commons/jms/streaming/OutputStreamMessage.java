@@ -18,31 +18,81 @@ package org.flcit.springboot.commons.jms.streaming;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.CRC32;
 
 import javax.jms.JMSException;
 import javax.jms.StreamMessage;
 
 /**
+ * Flux d'écriture dans un {@link StreamMessage}. Sans taille de champ, chaque écriture est un champ du message ;
+ * avec une taille de champ, les écritures sont regroupées en champs d'au plus <code>fieldSize</code> octets,
+ * le contenu en attente étant écrit par {@link #flush()} et {@link #close()}.
+ * Les octets écrits sont comptés dans le nombre d'octets et le CRC32, non les champs typés ({@link #writeInt(int)}, {@link #write(byte)}).
+ * Optionnellement, la fermeture ajoute en propriétés du message le nombre d'octets et le CRC32 du flux,
+ * vérifiés à la lecture par {@link InputStreamMessage}.
  * 
  * @since 
  * @author Florian Lestic
  */
 public class OutputStreamMessage extends OutputStream implements AutoCloseable {
 
+    /**
+     * Taille par défaut des champs
+     */
+    public static final int DEFAULT_FIELD_SIZE = 64 * 1024;
+    /**
+     * Propriété portant le nombre d'octets du flux
+     */
+    public static final String STREAM_LENGTH_PROPERTY = "streamLength";
+    /**
+     * Propriété portant le CRC32 du flux
+     */
+    public static final String STREAM_CRC_PROPERTY = "streamCrc32";
+
     private final StreamMessage streamMessage;
+    private final byte[] buffer;
+    private final CRC32 crc;
+    private int count;
+    private long length;
+    private boolean closed;
 
     /**
      * @param streamMessage
      */
     public OutputStreamMessage(StreamMessage streamMessage) {
+        this(streamMessage, null, false);
+    }
+
+    /**
+     * @param streamMessage
+     * @param fieldSize taille maximale d'un champ
+     * @param trailer ajoute le nombre d'octets et le CRC32 du flux en propriétés du message à la fermeture
+     */
+    public OutputStreamMessage(StreamMessage streamMessage, int fieldSize, boolean trailer) {
+        this(streamMessage, newBuffer(fieldSize), trailer);
+    }
+
+    private OutputStreamMessage(StreamMessage streamMessage, byte[] buffer, boolean trailer) {
         this.streamMessage = streamMessage;
+        this.buffer = buffer;
+        this.crc = trailer ? new CRC32() : null;
+    }
+
+    private static byte[] newBuffer(int fieldSize) {
+        if (fieldSize <= 0) {
+            throw new IllegalArgumentException("Field size must be greater than 0");
+        }
+        return new byte[fieldSize];
     }
 
     /**
+     * Écrit un champ entier, après le contenu en attente.
      * @param b
      * @throws IOException
      */
     public void writeInt(int b) throws IOException {
+        flush();
         try {
             streamMessage.writeInt(b);
         } catch (JMSException e) { throw new IOException(e); }
@@ -50,14 +100,28 @@ public class OutputStreamMessage extends OutputStream implements AutoCloseable {
 
     @Override
     public void write(int b) throws IOException {
-        write(new byte[] { (byte) b });
+        if (buffer == null) {
+            write(new byte[] { (byte) b }, 0, 1);
+            return;
+        }
+        ensureOpen();
+        if (count == buffer.length) {
+            flush();
+        }
+        buffer[count++] = (byte) b;
+        length++;
+        if (crc != null) {
+            crc.update(b);
+        }
     }
 
     /**
+     * Écrit un champ octet, après le contenu en attente.
      * @param b
      * @throws IOException
      */
     public void write(byte b) throws IOException {
+        flush();
         try {
             streamMessage.writeByte(b);
         } catch (JMSException e) { throw new IOException(e); }
@@ -65,24 +129,94 @@ public class OutputStreamMessage extends OutputStream implements AutoCloseable {
 
     @Override
     public void write(byte[] b) throws IOException {
-        try {
-            streamMessage.writeBytes(b);
-        } catch (JMSException e) { throw new IOException(e); }
+        write(b, 0, b.length);
     }
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        ensureOpen();
+        length += len;
+        if (crc != null) {
+            crc.update(b, off, len);
+        }
+        if (buffer == null) {
+            writeField(b, off, len);
+            return;
+        }
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            if (count == 0 && remaining >= buffer.length) {
+                // champ complet écrit directement depuis le tableau de l'appelant
+                writeField(b, offset, buffer.length);
+                offset += buffer.length;
+                remaining -= buffer.length;
+            } else {
+                final int n = Math.min(buffer.length - count, remaining);
+                System.arraycopy(b, offset, buffer, count, n);
+                count += n;
+                offset += n;
+                remaining -= n;
+                if (count == buffer.length) {
+                    flush();
+                }
+            }
+        }
+    }
+
+    /**
+     * Écrit le contenu en attente dans un nouveau champ du message.
+     */
+    @Override
+    public void flush() throws IOException {
+        ensureOpen();
+        if (count > 0) {
+            writeField(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * @return le nombre d'octets écrits
+     */
+    public long getLength() {
+        return length;
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    private void writeField(byte[] b, int off, int len) throws IOException {
         try {
             streamMessage.writeBytes(b, off, len);
         } catch (JMSException e) { throw new IOException(e); }
     }
 
+    /**
+     * @throws UncheckedIOException si l'écriture du contenu en attente ou des propriétés échoue
+     */
     @Override
     public void close() {
+        if (closed) {
+            return;
+        }
         try {
-            super.close();
+            flush();
+            closed = true;
+            if (crc != null) {
+                try {
+                    streamMessage.setLongProperty(STREAM_LENGTH_PROPERTY, length);
+                    streamMessage.setLongProperty(STREAM_CRC_PROPERTY, crc.getValue());
+                } catch (JMSException e) { throw new IOException(e); }
+            }
         } catch (IOException e) {
-            // DO NOTHING
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.template;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import javax.jms.CompletionListener;
+import javax.jms.Connection;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jms.core.MessageCreator;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+/**
+ * Envoi asynchrone en pipeline : un thread dédié possède la session et un producteur anonyme,
+ * les envois utilisent le {@link CompletionListener} JMS 2.0 et n'attendent pas l'acquittement du broker.
+ * Si le fournisseur ne supporte pas l'envoi asynchrone, les envois sont délégués de manière synchrone au template sur un pool de threads.
+ * Le nombre d'envois en cours est borné : au-delà l'appelant est bloqué.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+final class AsyncSendPipeline {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AsyncSendPipeline.class);
+
+    private final BaseJmsTemplate template;
+    private final Semaphore inFlight;
+    private final ExecutorService sender;
+    private final Executor fallbackExecutor;
+    private final ExecutorService ownedFallbackExecutor;
+
+    private volatile boolean asyncSupported = true;
+    private Connection connection;
+    private Session session;
+    private MessageProducer producer;
+
+    AsyncSendPipeline(BaseJmsTemplate template, int maxInFlight, Executor fallbackExecutor) {
+        this.template = template;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.sender = Executors.newSingleThreadExecutor(threadFactory("jms-async-send-"));
+        if (fallbackExecutor != null) {
+            this.fallbackExecutor = fallbackExecutor;
+            this.ownedFallbackExecutor = null;
+        } else {
+            this.ownedFallbackExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), threadFactory("jms-sync-send-"));
+            this.fallbackExecutor = this.ownedFallbackExecutor;
+        }
+    }
+
+    private static CustomizableThreadFactory threadFactory(String prefix) {
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(prefix);
+        threadFactory.setDaemon(true);
+        return threadFactory;
+    }
+
+    CompletableFuture<Void> send(final Destination destination, final String destinationName, final MessageCreator messageCreator) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(e);
+            return future;
+        }
+        future.whenComplete((v, e) -> inFlight.release());
+        try {
+            if (asyncSupported) {
+                sender.execute(() -> doSendAsync(destination, destinationName, messageCreator, future));
+            } else {
+                fallbackExecutor.execute(() -> doSendSync(destination, destinationName, messageCreator, future));
+            }
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private void doSendAsync(final Destination destination, final String destinationName, final MessageCreator messageCreator, final CompletableFuture<Void> future) {
+        try {
+            openIfNecessary();
+            final Destination target = destination != null ? destination
+                    : template.getDestinationResolver().resolveDestinationName(session, destinationName, template.isPubSubDomain());
+            final Message message = messageCreator.createMessage(session);
+            if (template.isExplicitQosEnabled()) {
+                producer.send(target, message, template.getDeliveryMode(), template.getPriority(), template.getTimeToLive(), new FutureCompletionListener(future));
+            } else {
+                producer.send(target, message, new FutureCompletionListener(future));
+            }
+        } catch (AbstractMethodError | UnsupportedOperationException e) {
+            LOG.warn("Envoi asynchrone JMS 2.0 non supporté par le fournisseur, bascule sur l'envoi synchrone");
+            asyncSupported = false;
+            close();
+            fallbackExecutor.execute(() -> doSendSync(destination, destinationName, messageCreator, future));
+        } catch (JMSException e) {
+            close();
+            future.completeExceptionally(JmsUtils.convertJmsAccessException(e));
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void doSendSync(final Destination destination, final String destinationName, final MessageCreator messageCreator, final CompletableFuture<Void> future) {
+        try {
+            if (destination != null) {
+                template.send(destination, messageCreator);
+            } else {
+                template.send(destinationName, messageCreator);
+            }
+            future.complete(null);
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    private void openIfNecessary() throws JMSException {
+        if (producer != null) {
+            return;
+        }
+        connection = template.getConnectionFactory().createConnection();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        producer = session.createProducer(null);
+        if (template.getDeliveryDelay() >= 0) {
+            producer.setDeliveryDelay(template.getDeliveryDelay());
+        }
+        producer.setDisableMessageID(!template.isMessageIdEnabled());
+        producer.setDisableMessageTimestamp(!template.isMessageTimestampEnabled());
+    }
+
+    private void close() {
+        JmsUtils.closeMessageProducer(producer);
+        JmsUtils.closeSession(session);
+        JmsUtils.closeConnection(connection);
+        producer = null;
+        session = null;
+        connection = null;
+    }
+
+    void destroy() {
+        sender.execute(this::close);
+        sender.shutdown();
+        if (ownedFallbackExecutor != null) {
+            ownedFallbackExecutor.shutdown();
+        }
+    }
+
+    private static final class FutureCompletionListener implements CompletionListener {
+
+        private final CompletableFuture<Void> future;
+
+        private FutureCompletionListener(CompletableFuture<Void> future) {
+            this.future = future;
+        }
+
+        @Override
+        public void onCompletion(Message message) {
+            future.complete(null);
+        }
+
+        @Override
+        public void onException(Message message, Exception exception) {
+            future.completeExceptionally(exception instanceof JMSException ? JmsUtils.convertJmsAccessException((JMSException) exception) : exception);
+        }
+
+    }
+
+}
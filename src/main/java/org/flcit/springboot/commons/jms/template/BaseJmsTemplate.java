@@ -16,30 +16,491 @@
 
 package org.flcit.springboot.commons.jms.template;
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
 
+import javax.jms.BytesMessage;
 import javax.jms.ConnectionFactory;
+import javax.jms.Destination;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+import javax.jms.StreamMessage;
+import javax.jms.TextMessage;
 
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.jms.core.JmsTemplate;
+import org.springframework.jms.core.MessageCreator;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.converter.MessageConverter;
 
 import org.flcit.springboot.commons.jms.creator.StreamingMessageCreator;
+import org.flcit.springboot.commons.jms.streaming.ChunkHeaders;
+import org.flcit.springboot.commons.jms.streaming.OutputStreamMessage;
 
 /**
  * 
  * @since 
  * @author Florian Lestic
  */
-public class BaseJmsTemplate extends JmsTemplate {
+public class BaseJmsTemplate extends JmsTemplate implements DisposableBean {
+
+    /**
+     * Nombre de messages par défaut entre deux commits d'un envoi par lot
+     */
+    public static final int DEFAULT_BATCH_COMMIT_SIZE = 1000;
+    /**
+     * Volume par défaut (en octets) entre deux commits d'un envoi par lot
+     */
+    public static final long DEFAULT_BATCH_COMMIT_BYTES = 10L * 1024 * 1024;
+
+    /**
+     * Nombre maximum par défaut d'envois asynchrones en cours
+     */
+    public static final int DEFAULT_MAX_IN_FLIGHT_SENDS = 1000;
+
+    private int batchCommitSize = DEFAULT_BATCH_COMMIT_SIZE;
+    private long batchCommitBytes = DEFAULT_BATCH_COMMIT_BYTES;
+    private int maxInFlightSends = DEFAULT_MAX_IN_FLIGHT_SENDS;
+    private int streamingFieldSize = OutputStreamMessage.DEFAULT_FIELD_SIZE;
+    private boolean streamingTrailer;
+    private Executor asyncSendExecutor;
+    private AsyncSendPipeline asyncSendPipeline;
 
     protected BaseJmsTemplate(ConnectionFactory connectionFactory) {
         super(connectionFactory);
     }
 
+    /**
+     * @return
+     */
+    public int getBatchCommitSize() {
+        return batchCommitSize;
+    }
+
+    /**
+     * Nombre de messages entre deux commits d'un envoi par lot en session transactionnelle.
+     * @param batchCommitSize
+     */
+    public void setBatchCommitSize(int batchCommitSize) {
+        this.batchCommitSize = batchCommitSize;
+    }
+
+    /**
+     * @return
+     */
+    public long getBatchCommitBytes() {
+        return batchCommitBytes;
+    }
+
+    /**
+     * Volume (en octets) entre deux commits d'un envoi par lot en session transactionnelle.
+     * Seuls les corps des {@link TextMessage} et {@link BytesMessage} sont comptabilisés.
+     * @param batchCommitBytes
+     */
+    public void setBatchCommitBytes(long batchCommitBytes) {
+        this.batchCommitBytes = batchCommitBytes;
+    }
+
+    /**
+     * @return
+     */
+    public int getStreamingFieldSize() {
+        return streamingFieldSize;
+    }
+
+    /**
+     * Taille maximale d'un champ des {@link StreamMessage} produits par {@link #send(InputStream)}.
+     * @param streamingFieldSize
+     */
+    public void setStreamingFieldSize(int streamingFieldSize) {
+        this.streamingFieldSize = streamingFieldSize;
+    }
+
+    /**
+     * @return
+     */
+    public boolean isStreamingTrailer() {
+        return streamingTrailer;
+    }
+
+    /**
+     * Ajoute le nombre d'octets et le CRC32 du flux en propriétés des messages produits par {@link #send(InputStream)}.
+     * @param streamingTrailer
+     */
+    public void setStreamingTrailer(boolean streamingTrailer) {
+        this.streamingTrailer = streamingTrailer;
+    }
+
+    /**
+     * @return
+     */
+    public int getMaxInFlightSends() {
+        return maxInFlightSends;
+    }
+
+    /**
+     * Nombre maximum d'envois asynchrones en attente d'acquittement du broker, au-delà l'appelant est bloqué.
+     * Pris en compte au premier envoi asynchrone.
+     * @param maxInFlightSends
+     */
+    public void setMaxInFlightSends(int maxInFlightSends) {
+        this.maxInFlightSends = maxInFlightSends;
+    }
+
+    /**
+     * Exécuteur des envois synchrones lorsque le fournisseur ne supporte pas l'envoi asynchrone JMS 2.0.
+     * Pris en compte au premier envoi asynchrone.
+     * @param asyncSendExecutor
+     */
+    public void setAsyncSendExecutor(Executor asyncSendExecutor) {
+        this.asyncSendExecutor = asyncSendExecutor;
+    }
+
+    /**
+     * @param messageCreator
+     * @return
+     */
+    public CompletableFuture<Void> sendAsync(final MessageCreator messageCreator) {
+        final Destination defaultDestination = getDefaultDestination();
+        if (defaultDestination != null) {
+            return sendAsync(defaultDestination, messageCreator);
+        } else {
+            return sendAsync(getRequiredDefaultDestinationName(), messageCreator);
+        }
+    }
+
+    /**
+     * @param destination
+     * @param messageCreator
+     * @return
+     */
+    public CompletableFuture<Void> sendAsync(final Destination destination, final MessageCreator messageCreator) {
+        return getAsyncSendPipeline().send(destination, null, messageCreator);
+    }
+
+    /**
+     * @param destinationName
+     * @param messageCreator
+     * @return
+     */
+    public CompletableFuture<Void> sendAsync(final String destinationName, final MessageCreator messageCreator) {
+        return getAsyncSendPipeline().send(null, destinationName, messageCreator);
+    }
+
+    /**
+     * @param message
+     * @return
+     */
+    public CompletableFuture<Void> convertAndSendAsync(final Object message) {
+        return sendAsync(session -> getRequiredMessageConverter().toMessage(message, session));
+    }
+
+    /**
+     * @param destination
+     * @param message
+     * @return
+     */
+    public CompletableFuture<Void> convertAndSendAsync(final Destination destination, final Object message) {
+        return sendAsync(destination, session -> getRequiredMessageConverter().toMessage(message, session));
+    }
+
+    /**
+     * @param destinationName
+     * @param message
+     * @return
+     */
+    public CompletableFuture<Void> convertAndSendAsync(final String destinationName, final Object message) {
+        return sendAsync(destinationName, session -> getRequiredMessageConverter().toMessage(message, session));
+    }
+
+    private synchronized AsyncSendPipeline getAsyncSendPipeline() {
+        if (asyncSendPipeline == null) {
+            asyncSendPipeline = new AsyncSendPipeline(this, maxInFlightSends, asyncSendExecutor);
+        }
+        return asyncSendPipeline;
+    }
+
+    private MessageConverter getRequiredMessageConverter() {
+        final MessageConverter converter = getMessageConverter();
+        if (converter == null) {
+            throw new IllegalStateException("No 'messageConverter' specified. Check configuration of JmsTemplate.");
+        }
+        return converter;
+    }
+
+    private String getRequiredDefaultDestinationName() {
+        final String name = getDefaultDestinationName();
+        if (name == null) {
+            throw new IllegalStateException("No 'defaultDestination' or 'defaultDestinationName' specified. Check configuration of JmsTemplate.");
+        }
+        return name;
+    }
+
+    @Override
+    public synchronized void destroy() {
+        if (asyncSendPipeline != null) {
+            asyncSendPipeline.destroy();
+            asyncSendPipeline = null;
+        }
+    }
+
     /**
      * @param inputStream
      */
     public void send(final InputStream inputStream) {
-        super.send(new StreamingMessageCreator(inputStream));
+        send(inputStream, streamingFieldSize);
+    }
+
+    /**
+     * @param inputStream
+     * @param fieldSize taille maximale d'un champ du {@link StreamMessage}
+     */
+    public void send(final InputStream inputStream, final int fieldSize) {
+        super.send(new StreamingMessageCreator(inputStream, fieldSize, streamingTrailer));
+    }
+
+    /**
+     * @param inputStream
+     * @param chunkSize
+     * @return le nombre de messages envoyés
+     */
+    public int sendChunked(final InputStream inputStream, final int chunkSize) {
+        final Destination defaultDestination = getDefaultDestination();
+        if (defaultDestination != null) {
+            return sendChunked(defaultDestination, inputStream, chunkSize);
+        } else {
+            return sendChunked(getRequiredDefaultDestinationName(), inputStream, chunkSize);
+        }
+    }
+
+    /**
+     * @param destination
+     * @param inputStream
+     * @param chunkSize
+     * @return le nombre de messages envoyés
+     */
+    public int sendChunked(final Destination destination, final InputStream inputStream, final int chunkSize) {
+        final Integer count = execute(session -> doSendChunked(session, destination, inputStream, chunkSize), false);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * @param destinationName
+     * @param inputStream
+     * @param chunkSize
+     * @return le nombre de messages envoyés
+     */
+    public int sendChunked(final String destinationName, final InputStream inputStream, final int chunkSize) {
+        final Integer count = execute(session -> doSendChunked(session, resolveDestinationName(session, destinationName), inputStream, chunkSize), false);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Découpe le flux en {@link StreamMessage} d'au plus <code>chunkSize</code> octets portant les propriétés
+     * de {@link ChunkHeaders}, à réassembler côté consommateur par
+     * {@link org.flcit.springboot.commons.jms.listener.ChunkReassembler}.
+     * En session transactionnelle locale le commit intervient tous les {@link #getBatchCommitBytes()} octets et après le dernier message.
+     * @param session
+     * @param destination
+     * @param inputStream
+     * @param chunkSize
+     * @return le nombre de messages envoyés
+     * @throws JMSException
+     */
+    protected int doSendChunked(final Session session, final Destination destination, final InputStream inputStream, final int chunkSize) throws JMSException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be greater than 0");
+        }
+        final boolean commit = session.getTransacted() && isSessionLocallyTransacted(session);
+        final MessageProducer producer = createProducer(session, destination);
+        final String groupId = UUID.randomUUID().toString();
+        byte[] current = new byte[chunkSize];
+        byte[] next = new byte[chunkSize];
+        int sequence = 0;
+        long pendingBytes = 0;
+        try {
+            int currentLength = readFully(inputStream, current);
+            boolean last;
+            do {
+                // lecture anticipée du bloc suivant pour identifier le dernier message
+                final int nextLength = currentLength < chunkSize ? 0 : readFully(inputStream, next);
+                last = nextLength == 0;
+                final StreamMessage message = session.createStreamMessage();
+                message.writeBytes(current, 0, currentLength);
+                message.setStringProperty(ChunkHeaders.GROUP_ID, groupId);
+                message.setIntProperty(ChunkHeaders.GROUP_SEQUENCE, ++sequence);
+                message.setBooleanProperty(ChunkHeaders.LAST_CHUNK, last);
+                doSend(producer, message);
+                pendingBytes += currentLength;
+                if (commit && (last || pendingBytes >= batchCommitBytes)) {
+                    JmsUtils.commitIfNecessary(session);
+                    pendingBytes = 0;
+                }
+                final byte[] tmp = current;
+                current = next;
+                next = tmp;
+                currentLength = nextLength;
+            } while (!last);
+        } finally {
+            JmsUtils.closeMessageProducer(producer);
+        }
+        return sequence;
+    }
+
+    private static int readFully(final InputStream inputStream, final byte[] buffer) throws JMSException {
+        int total = 0;
+        try {
+            int n;
+            while (total < buffer.length && (n = inputStream.read(buffer, total, buffer.length - total)) != -1) {
+                total += n;
+            }
+        } catch (IOException e) {
+            final JMSException exc = new JMSException(e.getClass().getSimpleName());
+            exc.setLinkedException(e);
+            throw exc;
+        }
+        return total;
+    }
+
+    /**
+     * @param objects
+     * @return le nombre de messages envoyés
+     */
+    public int sendBatch(final Collection<?> objects) {
+        return sendBatch(objects.stream());
+    }
+
+    /**
+     * @param destination
+     * @param objects
+     * @return le nombre de messages envoyés
+     */
+    public int sendBatch(final Destination destination, final Collection<?> objects) {
+        return sendBatch(destination, objects.stream());
+    }
+
+    /**
+     * @param destinationName
+     * @param objects
+     * @return le nombre de messages envoyés
+     */
+    public int sendBatch(final String destinationName, final Collection<?> objects) {
+        return sendBatch(destinationName, objects.stream());
+    }
+
+    /**
+     * @param objects
+     * @return le nombre de messages envoyés
+     */
+    public int sendBatch(final Stream<?> objects) {
+        final Destination defaultDestination = getDefaultDestination();
+        if (defaultDestination != null) {
+            return sendBatch(defaultDestination, objects);
+        } else {
+            return sendBatch(getRequiredDefaultDestinationName(), objects);
+        }
+    }
+
+    /**
+     * @param destination
+     * @param objects
+     * @return le nombre de messages envoyés
+     */
+    public int sendBatch(final Destination destination, final Stream<?> objects) {
+        final Integer count = execute(session -> doSendBatch(session, destination, objects.iterator()), false);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * @param destinationName
+     * @param objects
+     * @return le nombre de messages envoyés
+     */
+    public int sendBatch(final String destinationName, final Stream<?> objects) {
+        final Integer count = execute(session -> doSendBatch(session, resolveDestinationName(session, destinationName), objects.iterator()), false);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Envoie l'ensemble des objets avec une seule session et un seul {@link MessageProducer},
+     * en session transactionnelle locale le commit intervient tous les {@link #getBatchCommitSize()} messages
+     * ou {@link #getBatchCommitBytes()} octets.
+     * @param session
+     * @param destination
+     * @param objects
+     * @return le nombre de messages envoyés
+     * @throws JMSException
+     */
+    protected int doSendBatch(final Session session, final Destination destination, final Iterator<?> objects) throws JMSException {
+        final MessageConverter converter = getRequiredMessageConverter();
+        final boolean commit = session.getTransacted() && isSessionLocallyTransacted(session);
+        final MessageProducer producer = createProducer(session, destination);
+        int count = 0;
+        int pending = 0;
+        long pendingBytes = 0;
+        try {
+            while (objects.hasNext()) {
+                final Message message = converter.toMessage(objects.next(), session);
+                if (commit) {
+                    pendingBytes += getBodySize(message);
+                }
+                doSend(producer, message);
+                count++;
+                if (commit && (++pending >= batchCommitSize || pendingBytes >= batchCommitBytes)) {
+                    JmsUtils.commitIfNecessary(session);
+                    pending = 0;
+                    pendingBytes = 0;
+                }
+            }
+            if (commit && pending > 0) {
+                JmsUtils.commitIfNecessary(session);
+            }
+        } finally {
+            JmsUtils.closeMessageProducer(producer);
+        }
+        return count;
+    }
+
+    private static long getBodySize(final Message message) throws JMSException {
+        if (message instanceof BytesMessage) {
+            // passage en lecture seule nécessaire pour obtenir la taille du corps
+            ((BytesMessage) message).reset();
+            return ((BytesMessage) message).getBodyLength();
+        } else if (message instanceof TextMessage) {
+            final String text = ((TextMessage) message).getText();
+            return text != null ? utf8Length(text) : 0;
+        }
+        return 0;
+    }
+
+    /**
+     * @return la taille du texte encodé en UTF-8, sans encodage
+     */
+    private static long utf8Length(final String text) {
+        long size = 0;
+        final int length = text.length();
+        for (int i = 0; i < length; i++) {
+            final char c = text.charAt(i);
+            if (c < 0x80) {
+                size++;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                size += 4;
+                i++;
+            } else {
+                size += 3;
+            }
+        }
+        return size;
     }
 
 }
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+
+import org.springframework.beans.factory.annotation.AnnotatedBeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.jms.support.converter.MessageConversionException;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Table immuable, construite au démarrage, entre l'identifiant de type porté par une propriété du message et la classe cible.
+ * Seules les classes enregistrées sont résolues, éventuellement restreintes à une liste de packages autorisés.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public final class TypeRegistry {
+
+    /**
+     * Propriété JMS par défaut portant l'identifiant de type
+     */
+    public static final String DEFAULT_PROPERTY_NAME = "typeId";
+
+    private final String propertyName;
+    private final Map<String, Class<?>> classes;
+    private final Map<Class<?>, String> typeIds;
+
+    private TypeRegistry(String propertyName, Map<String, Class<?>> classes, Map<Class<?>, String> typeIds) {
+        this.propertyName = propertyName;
+        this.classes = classes;
+        this.typeIds = typeIds;
+    }
+
+    /**
+     * @return
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return
+     */
+    public String getPropertyName() {
+        return propertyName;
+    }
+
+    /**
+     * @return les classes enregistrées par identifiant de type
+     */
+    public Map<String, Class<?>> getClasses() {
+        return classes;
+    }
+
+    /**
+     * @param message
+     * @return la classe correspondant à l'identifiant de type du message
+     * @throws JMSException
+     * @throws MessageConversionException si l'identifiant est absent ou inconnu
+     */
+    public Class<?> resolve(Message message) throws JMSException {
+        final String typeId = message.getStringProperty(propertyName);
+        if (typeId == null) {
+            throw new MessageConversionException("Message property is missing : " + propertyName);
+        }
+        final Class<?> clazz = classes.get(typeId);
+        if (clazz == null) {
+            throw new MessageConversionException("Type id is not registered : " + typeId);
+        }
+        return clazz;
+    }
+
+    /**
+     * @param clazz
+     * @return l'identifiant de type de la classe ou null si elle n'est pas enregistrée
+     */
+    public String getTypeId(Class<?> clazz) {
+        return typeIds.get(clazz);
+    }
+
+    /**
+     * 
+     * @since 
+     * @author Florian Lestic
+     */
+    public static final class Builder {
+
+        private String propertyName = DEFAULT_PROPERTY_NAME;
+        private final List<String> allowedPackages = new ArrayList<>();
+        private final Map<String, Class<?>> classes = new HashMap<>();
+        private ClassLoader classLoader = TypeRegistry.class.getClassLoader();
+
+        private Builder() { }
+
+        /**
+         * @param propertyName
+         * @return
+         */
+        public Builder propertyName(String propertyName) {
+            this.propertyName = propertyName;
+            return this;
+        }
+
+        /**
+         * @param classLoader
+         * @return
+         */
+        public Builder classLoader(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+            return this;
+        }
+
+        /**
+         * Restreint les classes enregistrables aux packages indiqués (et leurs sous-packages).
+         * @param packages
+         * @return
+         */
+        public Builder allowedPackages(String... packages) {
+            for (String pkg : packages) {
+                allowedPackages.add(pkg.endsWith(".") ? pkg : pkg + ".");
+            }
+            return this;
+        }
+
+        /**
+         * @param typeId
+         * @param clazz
+         * @return
+         */
+        public Builder register(String typeId, Class<?> clazz) {
+            final Class<?> previous = classes.putIfAbsent(typeId, clazz);
+            if (previous != null && previous != clazz) {
+                throw new IllegalStateException("Type id " + typeId + " is already registered for " + previous.getName());
+            }
+            return this;
+        }
+
+        /**
+         * @param clazz classe annotée {@link JmsType}
+         * @return
+         */
+        public Builder register(Class<?> clazz) {
+            final JmsType jmsType = clazz.getAnnotation(JmsType.class);
+            return register(jmsType != null && StringUtils.hasText(jmsType.value()) ? jmsType.value() : clazz.getName(), clazz);
+        }
+
+        /**
+         * Enregistre les classes annotées {@link JmsType} des packages indiqués.
+         * @param basePackages
+         * @return
+         */
+        public Builder scan(String... basePackages) {
+            final ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false) {
+                @Override
+                protected boolean isCandidateComponent(AnnotatedBeanDefinition beanDefinition) {
+                    return beanDefinition.getMetadata().isIndependent();
+                }
+            };
+            scanner.addIncludeFilter(new AnnotationTypeFilter(JmsType.class));
+            for (String basePackage : basePackages) {
+                for (BeanDefinition candidate : scanner.findCandidateComponents(basePackage)) {
+                    register(ClassUtils.resolveClassName(candidate.getBeanClassName(), classLoader));
+                }
+            }
+            return this;
+        }
+
+        /**
+         * @return
+         */
+        public TypeRegistry build() {
+            final Map<Class<?>, String> typeIds = new HashMap<>(classes.size() * 2);
+            for (Map.Entry<String, Class<?>> entry : classes.entrySet()) {
+                if (!isAllowed(entry.getValue())) {
+                    throw new IllegalStateException("Class is not allowed : " + entry.getValue().getName());
+                }
+                typeIds.putIfAbsent(entry.getValue(), entry.getKey());
+            }
+            return new TypeRegistry(propertyName, Collections.unmodifiableMap(new HashMap<>(classes)), Collections.unmodifiableMap(typeIds));
+        }
+
+        private boolean isAllowed(Class<?> clazz) {
+            if (allowedPackages.isEmpty()) {
+                return true;
+            }
+            final String name = clazz.getName();
+            for (String pkg : allowedPackages) {
+                if (name.startsWith(pkg)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.flcit.springboot.commons.jms.warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.MessageProducer;
+import javax.jms.Session;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jms.support.JmsUtils;
+import org.springframework.jms.support.destination.DestinationResolver;
+import org.springframework.jms.support.destination.DynamicDestinationResolver;
+
+import org.flcit.springboot.commons.jms.CommonsJmsProperties;
+import org.flcit.springboot.commons.jms.converter.BaseMessageConverter;
+
+/**
+ * Préchauffage exécuté avant le démarrage des conteneurs de listeners : construction des (dé)sérialiseurs des classes enregistrées,
+ * allers-retours de conversion {@link BaseMessageConverter#roundTrip(Object, Session)}, non mesurés,
+ * en mémoire (sans envoi) et ouverture des sessions et producteurs du pool de connexions.
+ * Les erreurs de préchauffage sont journalisées sans bloquer le démarrage.
+ * 
+ * @since 
+ * @author Florian Lestic
+ */
+public class JmsWarmUp implements SmartLifecycle {
+
+    private static final Logger LOG = LoggerFactory.getLogger(JmsWarmUp.class);
+
+    private final CommonsJmsProperties.WarmUp properties;
+    private final Collection<BaseMessageConverter> converters;
+    private final Collection<Class<?>> classes;
+    private final ConnectionFactory connectionFactory;
+    private final DestinationResolver destinationResolver;
+    private final boolean pubSubDomain;
+    private volatile boolean running;
+
+    /**
+     * @param properties
+     * @param converters
+     * @param classes
+     * @param connectionFactory null pour ne pas ouvrir de session
+     */
+    public JmsWarmUp(CommonsJmsProperties.WarmUp properties, Collection<BaseMessageConverter> converters, Collection<Class<?>> classes, ConnectionFactory connectionFactory) {
+        this(properties, converters, classes, connectionFactory, new DynamicDestinationResolver(), false);
+    }
+
+    /**
+     * @param properties
+     * @param converters
+     * @param classes
+     * @param connectionFactory null pour ne pas ouvrir de session
+     * @param destinationResolver
+     * @param pubSubDomain
+     */
+    public JmsWarmUp(CommonsJmsProperties.WarmUp properties, Collection<BaseMessageConverter> converters, Collection<Class<?>> classes,
+            ConnectionFactory connectionFactory, DestinationResolver destinationResolver, boolean pubSubDomain) {
+        this.properties = properties;
+        this.converters = converters;
+        this.classes = new LinkedHashSet<>(classes);
+        this.connectionFactory = connectionFactory;
+        this.destinationResolver = destinationResolver;
+        this.pubSubDomain = pubSubDomain;
+    }
+
+    @Override
+    public void start() {
+        final long start = System.currentTimeMillis();
+        for (BaseMessageConverter converter : converters) {
+            for (Class<?> clazz : classes) {
+                try {
+                    converter.warmUp(clazz);
+                } catch (RuntimeException e) {
+                    LOG.warn("Préchauffage de la classe {} en échec : {}", clazz.getName(), e.getMessage());
+                }
+            }
+        }
+        if (connectionFactory != null) {
+            warmUpConnection();
+        }
+        running = true;
+        LOG.info("Préchauffage JMS terminé en {} ms", System.currentTimeMillis() - start);
+    }
+
+    private void warmUpConnection() {
+        Connection connection = null;
+        final List<Session> sessions = new ArrayList<>(properties.getSessions());
+        try {
+            connection = connectionFactory.createConnection();
+            // sessions ouvertes simultanément pour peupler le cache de la fabrique de connexions, restituées à la fermeture
+            for (int i = 0; i < properties.getSessions(); i++) {
+                final Session session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+                sessions.add(session);
+                openProducers(session);
+            }
+            if (!sessions.isEmpty()) {
+                roundTrips(sessions.get(0));
+            }
+        } catch (JMSException e) {
+            LOG.warn("Préchauffage de la connexion JMS en échec : {}", e.getMessage());
+        } finally {
+            for (Session session : sessions) {
+                JmsUtils.closeSession(session);
+            }
+            JmsUtils.closeConnection(connection);
+        }
+    }
+
+    private void openProducers(final Session session) throws JMSException {
+        for (String destination : properties.getDestinations()) {
+            final MessageProducer producer = session.createProducer(destinationResolver.resolveDestinationName(session, destination, pubSubDomain));
+            JmsUtils.closeMessageProducer(producer);
+        }
+    }
+
+    private void roundTrips(final Session session) {
+        final Set<Class<?>> failed = new LinkedHashSet<>();
+        for (int i = 0; i < properties.getIterations(); i++) {
+            for (BaseMessageConverter converter : converters) {
+                for (Class<?> clazz : classes) {
+                    if (!failed.contains(clazz)) {
+                        try {
+                            roundTrip(converter, session, clazz);
+                        } catch (JMSException | RuntimeException e) {
+                            failed.add(clazz);
+                            LOG.debug("Aller-retour de préchauffage impossible pour la classe {} : {}", clazz.getName(), e.getMessage());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void roundTrip(final BaseMessageConverter converter, final Session session, final Class<?> clazz) throws JMSException {
+        // sans mesure, afin de ne pas fausser les métriques de conversion
+        converter.roundTrip(BeanUtils.instantiateClass(clazz), session);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * @return une phase précédant celle des conteneurs de listeners
+     */
+    @Override
+    public int getPhase() {
+        return DEFAULT_PHASE - 1;
+    }
+
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.flcit.springboot.commons.jms.converter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+
+import org.apache.activemq.junit.EmbeddedActiveMQBroker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import org.flcit.springboot.commons.jms.codec.GzipCodec;
+import org.flcit.springboot.commons.jms.codec.PayloadCodecs;
+
+/**
+ * Compression par codec à l'écriture et décompression à la lecture d'un convertisseur, au travers d'un broker embarqué.
+ */
+public class CodecConversionTest {
+
+    @Rule
+    public EmbeddedActiveMQBroker broker = new EmbeddedActiveMQBroker();
+
+    private Connection connection;
+    private Session session;
+    private Queue queue;
+    private BaseJsonMessageConverter converter;
+
+    @Before
+    public void setUp() throws JMSException {
+        connection = broker.createConnectionFactory().createConnection();
+        connection.start();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        queue = session.createQueue("conversion");
+        converter = new BaseJsonMessageConverter() {
+            @Override
+            public Class<?> getClassResult(Message message) {
+                return Payload.class;
+            }
+        };
+        converter.setCodec(new GzipCodec());
+        converter.setCompressionThreshold(1024);
+    }
+
+    @After
+    public void tearDown() throws JMSException {
+        connection.close();
+    }
+
+    @Test
+    public void compressedAboveThreshold() throws JMSException {
+        final char[] text = new char[100_000];
+        Arrays.fill(text, 'a');
+        final Payload payload = new Payload(new String(text), 42);
+        final BytesMessage received = (BytesMessage) sendAndReceive(converter.toMessage(payload, session));
+        assertEquals(GzipCodec.NAME, received.getStringProperty(PayloadCodecs.CONTENT_ENCODING));
+        assertTrue(received.getBodyLength() < text.length);
+        final Payload result = (Payload) converter.fromMessage(received);
+        assertEquals(payload.getText(), result.getText());
+        assertEquals(payload.getValue(), result.getValue());
+    }
+
+    @Test
+    public void plainBelowThreshold() throws JMSException {
+        final Payload payload = new Payload("small", 7);
+        final BytesMessage received = (BytesMessage) sendAndReceive(converter.toMessage(payload, session));
+        assertNull(received.getStringProperty(PayloadCodecs.CONTENT_ENCODING));
+        final Payload result = (Payload) converter.fromMessage(received);
+        assertEquals("small", result.getText());
+        assertEquals(7, result.getValue());
+    }
+
+    @Test
+    public void decodedWithoutConfiguredCodec() throws JMSException {
+        final char[] text = new char[10_000];
+        Arrays.fill(text, 'b');
+        final Message received = sendAndReceive(converter.toMessage(new Payload(new String(text), 1), session));
+        converter.setCodec(null);
+        final Payload result = (Payload) converter.fromMessage(received);
+        assertFalse(result.getText().isEmpty());
+        assertEquals(text.length, result.getText().length());
+    }
+
+    private Message sendAndReceive(final Message message) throws JMSException {
+        final MessageProducer producer = session.createProducer(queue);
+        final MessageConsumer consumer = session.createConsumer(queue);
+        try {
+            producer.send(message);
+            return consumer.receive(5000);
+        } finally {
+            consumer.close();
+            producer.close();
+        }
+    }
+
+    public static class Payload {
+
+        private String text;
+        private int value;
+
+        public Payload() {
+        }
+
+        public Payload(String text, int value) {
+            this.text = text;
+            this.value = value;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public void setValue(int value) {
+            this.value = value;
+        }
+
+    }
+
+}
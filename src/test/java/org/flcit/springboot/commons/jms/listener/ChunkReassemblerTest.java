@@ -0,0 +1,155 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.flcit.springboot.commons.jms.listener;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.jms.Connection;
+import javax.jms.ConnectionFactory;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.Session;
+
+import org.apache.activemq.junit.EmbeddedActiveMQBroker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.springframework.jms.JmsException;
+
+import org.flcit.springboot.commons.jms.template.BaseJmsTemplate;
+
+/**
+ * Découpage par {@link BaseJmsTemplate#sendChunked(String, java.io.InputStream, int)} et réassemblage par {@link ChunkReassembler},
+ * au travers d'un broker embarqué.
+ */
+public class ChunkReassemblerTest {
+
+    private static final String QUEUE = "chunks";
+
+    @Rule
+    public EmbeddedActiveMQBroker broker = new EmbeddedActiveMQBroker();
+
+    private ConnectionFactory connectionFactory;
+    private Connection connection;
+    private Session session;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws JMSException {
+        connectionFactory = broker.createConnectionFactory();
+        connection = connectionFactory.createConnection();
+        connection.start();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public void tearDown() throws JMSException {
+        executor.shutdownNow();
+        connection.close();
+    }
+
+    @Test
+    public void reassembleChunks() throws JMSException {
+        final byte[] data = new byte[10_500];
+        new Random(1).nextBytes(data);
+        final int count = new BaseJmsTemplate(connectionFactory) { }.sendChunked(QUEUE, new ByteArrayInputStream(data), 1000);
+        assertEquals(11, count);
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        final ChunkReassembler reassembler = new ChunkReassembler(is -> {
+            try {
+                final byte[] buffer = new byte[512];
+                int n;
+                while ((n = is.read(buffer)) != -1) {
+                    result.write(buffer, 0, n);
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, executor, 4, 5000);
+        for (Message message : receive(count)) {
+            reassembler.onMessage(message);
+        }
+        assertArrayEquals(data, result.toByteArray());
+    }
+
+    @Test
+    public void failedStreamIsRejectedOnce() throws JMSException {
+        final int count = new BaseJmsTemplate(connectionFactory) { }.sendChunked(QUEUE, new ByteArrayInputStream(new byte[3000]), 1000);
+        final ChunkReassembler reassembler = new ChunkReassembler(is -> {
+            // échec après lecture complète : le dernier message est en attente du traitement
+            try {
+                while (is.read() != -1) {
+                    // lecture du flux
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            throw new IllegalStateException("failure");
+        }, executor, 4, 5000);
+        final List<Message> messages = receive(count);
+        for (Message message : messages.subList(0, count - 1)) {
+            reassembler.onMessage(message);
+        }
+        final Message last = messages.get(count - 1);
+        assertThrows(JmsException.class, () -> reassembler.onMessage(last));
+        // relivraisons des messages du flux en échec : écartées
+        for (Message message : messages) {
+            reassembler.onMessage(message);
+        }
+    }
+
+    @Test
+    public void orphanChunksAreDiscarded() throws JMSException {
+        final int count = new BaseJmsTemplate(connectionFactory) { }.sendChunked(QUEUE, new ByteArrayInputStream(new byte[3000]), 1000);
+        final List<Message> handled = new ArrayList<>();
+        final ChunkReassembler reassembler = new ChunkReassembler(is -> handled.add(null), executor, 4, 5000);
+        final List<Message> messages = receive(count);
+        for (Message message : messages.subList(1, count)) {
+            reassembler.onMessage(message);
+        }
+        assertEquals(0, handled.size());
+    }
+
+    private List<Message> receive(final int count) throws JMSException {
+        final List<Message> messages = new ArrayList<>(count);
+        final MessageConsumer consumer = session.createConsumer(session.createQueue(QUEUE));
+        try {
+            for (int i = 0; i < count; i++) {
+                messages.add(consumer.receive(5000));
+            }
+        } finally {
+            consumer.close();
+        }
+        return messages;
+    }
+
+}
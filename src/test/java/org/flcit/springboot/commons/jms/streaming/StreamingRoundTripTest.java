@@ -0,0 +1,196 @@
+/*
+ * Copyright 2002-2023 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.flcit.springboot.commons.jms.streaming;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import javax.jms.BytesMessage;
+import javax.jms.Connection;
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.MessageConsumer;
+import javax.jms.MessageEOFException;
+import javax.jms.MessageProducer;
+import javax.jms.Queue;
+import javax.jms.Session;
+import javax.jms.StreamMessage;
+
+import org.apache.activemq.junit.EmbeddedActiveMQBroker;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+/**
+ * Aller-retour des flux {@link OutputStreamMessage} / {@link InputStreamMessage}
+ * et {@link OutputStreamBytesMessage} / {@link InputStreamBytesMessage} au travers d'un broker embarqué.
+ */
+public class StreamingRoundTripTest {
+
+    @Rule
+    public EmbeddedActiveMQBroker broker = new EmbeddedActiveMQBroker();
+
+    private Connection connection;
+    private Session session;
+    private Queue queue;
+
+    @Before
+    public void setUp() throws JMSException {
+        connection = broker.createConnectionFactory().createConnection();
+        connection.start();
+        session = connection.createSession(false, Session.AUTO_ACKNOWLEDGE);
+        queue = session.createQueue("streaming");
+    }
+
+    @After
+    public void tearDown() throws JMSException {
+        connection.close();
+    }
+
+    @Test
+    public void writeThroughRoundTrip() throws Exception {
+        final byte[] data = randomBytes(100_000);
+        final StreamMessage message = session.createStreamMessage();
+        final OutputStreamMessage os = new OutputStreamMessage(message);
+        os.write(data, 0, 10);
+        os.write(data[10] & 0xFF);
+        os.write(data, 11, data.length - 11);
+        final StreamMessage received = (StreamMessage) sendAndReceive(message);
+        assertArrayEquals(data, readFully(new InputStreamMessage(received)));
+    }
+
+    @Test
+    public void coalescedFields() throws Exception {
+        final StreamMessage message = session.createStreamMessage();
+        try (OutputStreamMessage os = new OutputStreamMessage(message, 4, false)) {
+            for (int i = 0; i < 6; i++) {
+                os.write(i);
+            }
+            os.write(new byte[] { 6, 7, 8, 9 });
+        }
+        final StreamMessage received = (StreamMessage) sendAndReceive(message);
+        assertArrayEquals(new byte[] { 0, 1, 2, 3 }, (byte[]) received.readObject());
+        assertArrayEquals(new byte[] { 4, 5, 6, 7 }, (byte[]) received.readObject());
+        assertArrayEquals(new byte[] { 8, 9 }, (byte[]) received.readObject());
+        assertThrows(MessageEOFException.class, received::readObject);
+    }
+
+    @Test
+    public void typedFieldsKeepTheirOrder() throws Exception {
+        final StreamMessage message = session.createStreamMessage();
+        try (OutputStreamMessage os = new OutputStreamMessage(message, 16, false)) {
+            os.write(new byte[] { 1, 2 });
+            os.writeInt(42);
+            os.write((byte) 7);
+            os.write(3);
+        }
+        final StreamMessage received = (StreamMessage) sendAndReceive(message);
+        assertArrayEquals(new byte[] { 1, 2 }, (byte[]) received.readObject());
+        assertEquals(42, received.readObject());
+        assertEquals((byte) 7, received.readObject());
+        assertArrayEquals(new byte[] { 3 }, (byte[]) received.readObject());
+    }
+
+    @Test
+    public void writeAfterCloseFails() throws Exception {
+        final OutputStreamMessage os = new OutputStreamMessage(session.createStreamMessage(), 16, false);
+        os.close();
+        assertThrows(IOException.class, () -> os.write(1));
+        assertThrows(IOException.class, () -> os.writeInt(1));
+    }
+
+    @Test
+    public void trailerRoundTrip() throws Exception {
+        final byte[] data = randomBytes(50_000);
+        final StreamMessage message = session.createStreamMessage();
+        try (OutputStreamMessage os = new OutputStreamMessage(message, 4096, true)) {
+            os.write(data);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(data);
+        final StreamMessage received = (StreamMessage) sendAndReceive(message);
+        assertEquals(data.length, received.getLongProperty(OutputStreamMessage.STREAM_LENGTH_PROPERTY));
+        assertEquals(crc.getValue(), received.getLongProperty(OutputStreamMessage.STREAM_CRC_PROPERTY));
+        assertArrayEquals(data, readFully(new InputStreamMessage(received)));
+    }
+
+    @Test
+    public void corruptedCrcIsDetected() throws Exception {
+        final StreamMessage message = session.createStreamMessage();
+        try (OutputStreamMessage os = new OutputStreamMessage(message, 4096, true)) {
+            os.write(randomBytes(10_000));
+        }
+        message.setLongProperty(OutputStreamMessage.STREAM_CRC_PROPERTY, message.getLongProperty(OutputStreamMessage.STREAM_CRC_PROPERTY) ^ 1);
+        final StreamMessage received = (StreamMessage) sendAndReceive(message);
+        final IOException e = assertThrows(IOException.class, () -> readFully(new InputStreamMessage(received)));
+        assertTrue(e.getMessage().contains("CRC32"));
+    }
+
+    @Test
+    public void bytesMessageRoundTrip() throws Exception {
+        final byte[] data = randomBytes(3 * OutputStreamBytesMessage.BUFFER_SIZE + 17);
+        final BytesMessage message = session.createBytesMessage();
+        try (OutputStreamBytesMessage os = new OutputStreamBytesMessage(message)) {
+            os.write(data[0]);
+            os.write(data, 1, data.length - 1);
+            assertEquals(data.length, os.getSize());
+        }
+        final BytesMessage received = (BytesMessage) sendAndReceive(message);
+        assertArrayEquals(data, readFully(new InputStreamBytesMessage(received)));
+    }
+
+    private Message sendAndReceive(final Message message) throws JMSException {
+        final MessageProducer producer = session.createProducer(queue);
+        final MessageConsumer consumer = session.createConsumer(queue);
+        try {
+            producer.send(message);
+            return consumer.receive(5000);
+        } finally {
+            consumer.close();
+            producer.close();
+        }
+    }
+
+    private static byte[] readFully(final InputStream is) throws IOException {
+        try (InputStream in = is) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte[] buffer = new byte[1000];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    private static byte[] randomBytes(final int size) {
+        final byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+}